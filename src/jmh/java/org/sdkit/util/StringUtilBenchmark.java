@@ -0,0 +1,83 @@
+package org.sdkit.util;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the scanning {@link StringUtil} primitives with the regular
+ * expression and trimming versions they replace. Run with
+ * {@code gradle jmh}.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StringUtilBenchmark {
+
+  private String lines;
+  private String path;
+  private String blank;
+
+  @Setup
+  public void setUp() {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < 100; ++i) {
+      builder.append("2016-01-01 12:00:00 INFO some log message number ").append(i)
+          .append(i % 3 == 0 ? "\r\n" : "\n");
+    }
+    lines = builder.toString();
+    path = "C:\\Users\\someone\\AppData\\Local\\Temp\\data\\array.txt";
+    blank = "                                \t";
+  }
+
+  @Benchmark
+  public String[] splitByNewLineRegex() {
+    return lines.split("\\r?\\n|\\r");
+  }
+
+  @Benchmark
+  public String[] splitByNewLine() {
+    return StringUtil.splitByNewLine(lines);
+  }
+
+  @Benchmark
+  public void lineSpans(Blackhole blackhole) {
+    LineSpans spans = StringUtil.lineSpans(lines);
+    while (spans.next()) {
+      blackhole.consume(spans.end() - spans.start());
+    }
+  }
+
+  @Benchmark
+  public String escapeBackslashRegex() {
+    return path.replaceAll("\\\\", "\\\\\\\\");
+  }
+
+  @Benchmark
+  public String escapeBackslash() {
+    return StringUtil.escapeBackslash(path);
+  }
+
+  @Benchmark
+  public boolean isBlankTrim() {
+    return blank.trim().isEmpty();
+  }
+
+  @Benchmark
+  public boolean isBlank() {
+    return StringUtil.isBlank(blank);
+  }
+}
@@ -11,6 +11,11 @@ import com.google.gson.JsonSerializer;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.SimpleBooleanProperty;
 
+/**
+ * @deprecated use {@link PropertyTypeAdapterFactory}, which streams values
+ *             without building a {@code JsonElement}
+ */
+@Deprecated
 public class BooleanPropertyAdapter implements JsonSerializer<BooleanProperty>, JsonDeserializer<BooleanProperty> {
   @Override
   public JsonElement serialize(BooleanProperty property, Type type,
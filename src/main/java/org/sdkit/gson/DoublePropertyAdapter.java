@@ -11,6 +11,11 @@ import com.google.gson.JsonSerializer;
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.SimpleDoubleProperty;
 
+/**
+ * @deprecated use {@link PropertyTypeAdapterFactory}, which streams values
+ *             without building a {@code JsonElement}
+ */
+@Deprecated
 public class DoublePropertyAdapter implements JsonSerializer<DoubleProperty>, JsonDeserializer<DoubleProperty> {
   @Override
   public JsonElement serialize(DoubleProperty property, Type type,
@@ -0,0 +1,103 @@
+package org.sdkit.gson;
+
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * Shared {@link Gson} instance with the sdkit adapters registered:
+ * {@link PropertyTypeAdapterFactory}, {@link ObservableListTypeAdapterFactory}
+ * and {@link PrimitiveArrayTypeAdapterFactory}.
+ *
+ * <p>
+ * {@code Gson} is immutable and thread-safe, and caches the adapter of every
+ * type it has seen, reflective ones included. Sharing one instance pays the
+ * reflection once per process instead of once per {@code new Gson()}; model
+ * classes can even be {@linkplain #warmUp(Type...) warmed up} at startup.
+ *
+ * <p>
+ * The statistics count adapter builds, that is cache misses, and the time
+ * spent warming up. Gson serves cache hits without calling any factory, so
+ * they are not counted and no hit rate can be derived.
+ */
+public final class GsonProvider {
+
+  private static final AdapterBuilds builds = new AdapterBuilds();
+  private static final Gson gson = newBuilder().registerTypeAdapterFactory(builds).create();
+
+  private GsonProvider() {}
+
+  /**
+   * Returns the shared instance.
+   */
+  public static Gson get() {
+    return gson;
+  }
+
+  /**
+   * Returns a builder with the sdkit adapters registered, for callers which
+   * need other settings. Prefer building it once.
+   */
+  public static GsonBuilder newBuilder() {
+    return new GsonBuilder()
+        .registerTypeAdapterFactory(new PropertyTypeAdapterFactory())
+        .registerTypeAdapterFactory(new ObservableListTypeAdapterFactory())
+        .registerTypeAdapterFactory(new PrimitiveArrayTypeAdapterFactory());
+  }
+
+  /**
+   * Builds the adapters of the types, and of the types they contain, so that
+   * the first real (de)serialization does not pay for it.
+   */
+  public static void warmUp(Type... types) {
+    long start = System.nanoTime();
+    for (Type type : types) {
+      gson.getAdapter(TypeToken.get(type));
+    }
+    builds.warmUpNanos.addAndGet(System.nanoTime() - start);
+  }
+
+  /**
+   * Returns the number of adapters the shared instance has built, which is
+   * the number of misses of its adapter cache.
+   */
+  public static int getAdapterBuildCount() {
+    return builds.types.size();
+  }
+
+  /**
+   * Returns the types whose adapter the shared instance has built.
+   */
+  public static Set<Type> getAdapterTypes() {
+    return Collections.unmodifiableSet(builds.types);
+  }
+
+  /**
+   * Returns the total time spent in {@link #warmUp(Type...)}.
+   */
+  public static long getWarmUpNanos() {
+    return builds.warmUpNanos.get();
+  }
+
+  /**
+   * Registered last, hence consulted first about every type the cache misses;
+   * it only records the type and lets the other factories create the adapter.
+   */
+  private static final class AdapterBuilds implements TypeAdapterFactory {
+    final Set<Type> types = ConcurrentHashMap.newKeySet();
+    final AtomicLong warmUpNanos = new AtomicLong();
+
+    @Override
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+      types.add(type.getType());
+      return null;
+    }
+  }
+}
@@ -11,6 +11,11 @@ import com.google.gson.JsonSerializer;
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.SimpleIntegerProperty;
 
+/**
+ * @deprecated use {@link PropertyTypeAdapterFactory}, which streams values
+ *             without building a {@code JsonElement}
+ */
+@Deprecated
 public class IntegerPropertyAdapter implements JsonSerializer<IntegerProperty>, JsonDeserializer<IntegerProperty> {
   @Override
   public JsonElement serialize(IntegerProperty property, Type type,
@@ -0,0 +1,80 @@
+package org.sdkit.gson;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import javafx.beans.property.ReadOnlyListProperty;
+import javafx.beans.property.SimpleListProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+/**
+ * Streams {@code ListProperty<T>} and {@code ObservableList<T>} as JSON
+ * arrays, the elements going through the adapter of {@code T}.
+ *
+ * <p>
+ * Elements are read into a plain list which then becomes the backing list of
+ * the observable one, so the elements are neither copied nor notified one by
+ * one.
+ *
+ * <pre>
+ * Gson gson = new GsonBuilder().registerTypeAdapterFactory(new ObservableListTypeAdapterFactory()).create();
+ * </pre>
+ */
+public class ObservableListTypeAdapterFactory implements TypeAdapterFactory {
+
+  @Override
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> typeToken) {
+    Class<? super T> raw = typeToken.getRawType();
+    boolean property = ReadOnlyListProperty.class.isAssignableFrom(raw)
+        && raw.isAssignableFrom(SimpleListProperty.class);
+    if (!property && raw != ObservableList.class) {
+      return null;
+    }
+    TypeAdapter<?> elementAdapter =
+        gson.getAdapter(TypeToken.get(PropertyTypeAdapterFactory.valueType(typeToken)));
+    return (TypeAdapter<T>) new ListAdapter(elementAdapter, property).nullSafe();
+  }
+
+  private static final class ListAdapter<E> extends TypeAdapter<ObservableList<E>> {
+    private final TypeAdapter<E> elementAdapter;
+    private final boolean property;
+
+    ListAdapter(TypeAdapter<E> elementAdapter, boolean property) {
+      this.elementAdapter = elementAdapter;
+      this.property = property;
+    }
+
+    @Override
+    public void write(JsonWriter out, ObservableList<E> list) throws IOException {
+      if (property && ((ReadOnlyListProperty<E>) list).get() == null) {
+        out.nullValue();
+        return;
+      }
+      out.beginArray();
+      for (E element : list) {
+        elementAdapter.write(out, element);
+      }
+      out.endArray();
+    }
+
+    @Override
+    public ObservableList<E> read(JsonReader in) throws IOException {
+      List<E> elements = new ArrayList<>();
+      in.beginArray();
+      while (in.hasNext()) {
+        elements.add(elementAdapter.read(in));
+      }
+      in.endArray();
+      ObservableList<E> list = FXCollections.observableList(elements);
+      return property ? new SimpleListProperty<>(list) : list;
+    }
+  }
+}
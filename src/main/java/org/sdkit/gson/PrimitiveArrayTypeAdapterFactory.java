@@ -0,0 +1,200 @@
+package org.sdkit.gson;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Base64;
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Streams {@code double[]} and {@code int[]} without boxing their elements.
+ * An array is written element by element with the primitive
+ * {@link JsonWriter} methods, and read element by element into a growing
+ * primitive array. Elements are formatted by {@code JsonWriter} itself, with
+ * {@link Double#toString(double)}: the only way to hand it preformatted
+ * numbers is {@code jsonValue}, which {@code toJsonTree} does not support.
+ * NaN and infinite values are written as Gson's own {@code double} adapter
+ * would, that is only with
+ * {@link com.google.gson.GsonBuilder#serializeSpecialFloatingPointValues()}.
+ *
+ * <p>
+ * Arrays with at least {@code compactThreshold} elements are written in a
+ * compact form instead: the little-endian bytes of the values, base64
+ * encoded and tagged with their type, for example
+ * {@code {"f64le":"AAAAAAAA8D8="}} or {@code {"i32le":"AQAAAA=="}}. Both forms
+ * are always accepted when reading. The compact form is exact, about half the
+ * size of decimal text and much faster to parse. It also holds NaN and
+ * infinite values as standard JSON.
+ */
+public class PrimitiveArrayTypeAdapterFactory implements TypeAdapterFactory {
+
+  static final String DOUBLE_TAG = "f64le"; //$NON-NLS-1$
+  static final String INT_TAG = "i32le"; //$NON-NLS-1$
+
+  private final int compactThreshold;
+
+  /**
+   * Writes arrays as plain JSON arrays.
+   */
+  public PrimitiveArrayTypeAdapterFactory() {
+    this(Integer.MAX_VALUE);
+  }
+
+  /**
+   * @param compactThreshold the length from which arrays are written in the
+   *        compact form
+   */
+  public PrimitiveArrayTypeAdapterFactory(int compactThreshold) {
+    if (compactThreshold < 0) {
+      throw new IllegalArgumentException(
+          "compactThreshold must not be negative: " + compactThreshold); //$NON-NLS-1$
+    }
+    this.compactThreshold = compactThreshold;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> typeToken) {
+    Class<? super T> raw = typeToken.getRawType();
+    if (raw == double[].class) {
+      return (TypeAdapter<T>) new DoubleArrayAdapter(compactThreshold,
+          gson.getAdapter(double.class)).nullSafe();
+    }
+    if (raw == int[].class) {
+      return (TypeAdapter<T>) new IntArrayAdapter(compactThreshold).nullSafe();
+    }
+    return null;
+  }
+
+  private static final class DoubleArrayAdapter extends TypeAdapter<double[]> {
+    private final int compactThreshold;
+    private final TypeAdapter<Double> nonFiniteAdapter;
+
+    DoubleArrayAdapter(int compactThreshold, TypeAdapter<Double> nonFiniteAdapter) {
+      this.compactThreshold = compactThreshold;
+      this.nonFiniteAdapter = nonFiniteAdapter;
+    }
+
+    @Override
+    public void write(JsonWriter out, double[] values) throws IOException {
+      if (values.length >= compactThreshold) {
+        ByteBuffer bytes = ByteBuffer.allocate(values.length * Double.BYTES)
+            .order(ByteOrder.LITTLE_ENDIAN);
+        bytes.asDoubleBuffer().put(values);
+        writeCompact(out, DOUBLE_TAG, bytes.array());
+        return;
+      }
+      out.beginArray();
+      for (double value : values) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+          // rare: let Gson apply its serializeSpecialFloatingPointValues setting
+          nonFiniteAdapter.write(out, value);
+        } else {
+          out.value(value);
+        }
+      }
+      out.endArray();
+    }
+
+    @Override
+    public double[] read(JsonReader in) throws IOException {
+      if (in.peek() == JsonToken.BEGIN_OBJECT) {
+        ByteBuffer bytes = readCompact(in, DOUBLE_TAG, Double.BYTES);
+        double[] values = new double[bytes.remaining() / Double.BYTES];
+        bytes.asDoubleBuffer().get(values);
+        return values;
+      }
+      double[] values = new double[16];
+      int size = 0;
+      in.beginArray();
+      while (in.hasNext()) {
+        if (size == values.length) {
+          values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = in.nextDouble();
+      }
+      in.endArray();
+      return size == values.length ? values : Arrays.copyOf(values, size);
+    }
+  }
+
+  private static final class IntArrayAdapter extends TypeAdapter<int[]> {
+    private final int compactThreshold;
+
+    IntArrayAdapter(int compactThreshold) {
+      this.compactThreshold = compactThreshold;
+    }
+
+    @Override
+    public void write(JsonWriter out, int[] values) throws IOException {
+      if (values.length >= compactThreshold) {
+        ByteBuffer bytes = ByteBuffer.allocate(values.length * Integer.BYTES)
+            .order(ByteOrder.LITTLE_ENDIAN);
+        bytes.asIntBuffer().put(values);
+        writeCompact(out, INT_TAG, bytes.array());
+        return;
+      }
+      out.beginArray();
+      for (int value : values) {
+        out.value(value);
+      }
+      out.endArray();
+    }
+
+    @Override
+    public int[] read(JsonReader in) throws IOException {
+      if (in.peek() == JsonToken.BEGIN_OBJECT) {
+        ByteBuffer bytes = readCompact(in, INT_TAG, Integer.BYTES);
+        int[] values = new int[bytes.remaining() / Integer.BYTES];
+        bytes.asIntBuffer().get(values);
+        return values;
+      }
+      int[] values = new int[16];
+      int size = 0;
+      in.beginArray();
+      while (in.hasNext()) {
+        if (size == values.length) {
+          values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = in.nextInt();
+      }
+      in.endArray();
+      return size == values.length ? values : Arrays.copyOf(values, size);
+    }
+  }
+
+  private static void writeCompact(JsonWriter out, String tag, byte[] bytes) throws IOException {
+    out.beginObject();
+    out.name(tag).value(Base64.getEncoder().encodeToString(bytes));
+    out.endObject();
+  }
+
+  private static ByteBuffer readCompact(JsonReader in, String tag, int elementSize)
+      throws IOException {
+    in.beginObject();
+    String name = in.nextName();
+    if (!name.equals(tag)) {
+      throw new JsonSyntaxException("Expected " + tag + " array but was " + name + " at " //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+          + in.getPath());
+    }
+    byte[] bytes;
+    try {
+      bytes = Base64.getDecoder().decode(in.nextString());
+    } catch (IllegalArgumentException e) {
+      throw new JsonSyntaxException("Invalid base64 at " + in.getPath(), e); //$NON-NLS-1$
+    }
+    if (bytes.length % elementSize != 0) {
+      throw new JsonSyntaxException("Truncated " + tag + " array at " + in.getPath()); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+    in.endObject();
+    return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+  }
+}
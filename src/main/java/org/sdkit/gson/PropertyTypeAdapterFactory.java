@@ -0,0 +1,186 @@
+package org.sdkit.gson;
+
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.FloatProperty;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.LongProperty;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyFloatProperty;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyLongProperty;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.beans.property.SimpleFloatProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.SimpleLongProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
+
+/**
+ * Streams JavaFX properties as their value: {@code BooleanProperty},
+ * {@code DoubleProperty}, {@code FloatProperty}, {@code IntegerProperty},
+ * {@code LongProperty}, {@code StringProperty} and {@code ObjectProperty<T>},
+ * whose value goes through the adapter of {@code T}. Properties are read as
+ * their {@code Simple*Property} implementation, and a JSON {@code null} as a
+ * null property.
+ *
+ * <p>
+ * Unlike {@link BooleanPropertyAdapter} and its siblings, values are read and
+ * written straight from the stream without building a {@code JsonElement}.
+ *
+ * <pre>
+ * Gson gson = new GsonBuilder().registerTypeAdapterFactory(new PropertyTypeAdapterFactory()).create();
+ * </pre>
+ */
+public class PropertyTypeAdapterFactory implements TypeAdapterFactory {
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> typeToken) {
+    Class<? super T> raw = typeToken.getRawType();
+    TypeAdapter<?> adapter;
+    if (isProperty(raw, ReadOnlyBooleanProperty.class, SimpleBooleanProperty.class)) {
+      adapter = BOOLEAN;
+    } else if (isProperty(raw, ReadOnlyDoubleProperty.class, SimpleDoubleProperty.class)) {
+      adapter = DOUBLE;
+    } else if (isProperty(raw, ReadOnlyFloatProperty.class, SimpleFloatProperty.class)) {
+      adapter = FLOAT;
+    } else if (isProperty(raw, ReadOnlyIntegerProperty.class, SimpleIntegerProperty.class)) {
+      adapter = INTEGER;
+    } else if (isProperty(raw, ReadOnlyLongProperty.class, SimpleLongProperty.class)) {
+      adapter = LONG;
+    } else if (isProperty(raw, ReadOnlyStringProperty.class, SimpleStringProperty.class)) {
+      adapter = STRING;
+    } else if (isProperty(raw, ReadOnlyObjectProperty.class, SimpleObjectProperty.class)) {
+      adapter = new ObjectPropertyAdapter<>(gson.getAdapter(TypeToken.get(valueType(typeToken))));
+    } else {
+      return null;
+    }
+    return (TypeAdapter<T>) adapter.nullSafe();
+  }
+
+  /**
+   * Returns true for the declared types which both are a property of the kind
+   * and accept its simple implementation.
+   */
+  private static boolean isProperty(Class<?> raw, Class<?> kind, Class<?> simple) {
+    return kind.isAssignableFrom(raw) && raw.isAssignableFrom(simple);
+  }
+
+  /**
+   * Returns the first type argument of the type, or {@code Object} if it is
+   * raw.
+   */
+  static Type valueType(TypeToken<?> typeToken) {
+    Type type = typeToken.getType();
+    if (type instanceof ParameterizedType) {
+      return ((ParameterizedType) type).getActualTypeArguments()[0];
+    }
+    return Object.class;
+  }
+
+  private static final TypeAdapter<BooleanProperty> BOOLEAN = new TypeAdapter<BooleanProperty>() {
+    @Override
+    public void write(JsonWriter out, BooleanProperty property) throws IOException {
+      out.value(property.get());
+    }
+
+    @Override
+    public BooleanProperty read(JsonReader in) throws IOException {
+      return new SimpleBooleanProperty(in.nextBoolean());
+    }
+  };
+
+  private static final TypeAdapter<DoubleProperty> DOUBLE = new TypeAdapter<DoubleProperty>() {
+    @Override
+    public void write(JsonWriter out, DoubleProperty property) throws IOException {
+      out.value(property.get());
+    }
+
+    @Override
+    public DoubleProperty read(JsonReader in) throws IOException {
+      return new SimpleDoubleProperty(in.nextDouble());
+    }
+  };
+
+  private static final TypeAdapter<FloatProperty> FLOAT = new TypeAdapter<FloatProperty>() {
+    @Override
+    public void write(JsonWriter out, FloatProperty property) throws IOException {
+      out.value(Float.valueOf(property.get()));
+    }
+
+    @Override
+    public FloatProperty read(JsonReader in) throws IOException {
+      return new SimpleFloatProperty((float) in.nextDouble());
+    }
+  };
+
+  private static final TypeAdapter<IntegerProperty> INTEGER = new TypeAdapter<IntegerProperty>() {
+    @Override
+    public void write(JsonWriter out, IntegerProperty property) throws IOException {
+      out.value(property.get());
+    }
+
+    @Override
+    public IntegerProperty read(JsonReader in) throws IOException {
+      return new SimpleIntegerProperty(in.nextInt());
+    }
+  };
+
+  private static final TypeAdapter<LongProperty> LONG = new TypeAdapter<LongProperty>() {
+    @Override
+    public void write(JsonWriter out, LongProperty property) throws IOException {
+      out.value(property.get());
+    }
+
+    @Override
+    public LongProperty read(JsonReader in) throws IOException {
+      return new SimpleLongProperty(in.nextLong());
+    }
+  };
+
+  private static final TypeAdapter<StringProperty> STRING = new TypeAdapter<StringProperty>() {
+    @Override
+    public void write(JsonWriter out, StringProperty property) throws IOException {
+      out.value(property.get());
+    }
+
+    @Override
+    public StringProperty read(JsonReader in) throws IOException {
+      return new SimpleStringProperty(in.nextString());
+    }
+  };
+
+  private static final class ObjectPropertyAdapter<V> extends TypeAdapter<ObjectProperty<V>> {
+    private final TypeAdapter<V> valueAdapter;
+
+    ObjectPropertyAdapter(TypeAdapter<V> valueAdapter) {
+      this.valueAdapter = valueAdapter;
+    }
+
+    @Override
+    public void write(JsonWriter out, ObjectProperty<V> property) throws IOException {
+      valueAdapter.write(out, property.get());
+    }
+
+    @Override
+    public ObjectProperty<V> read(JsonReader in) throws IOException {
+      return new SimpleObjectProperty<>(valueAdapter.read(in));
+    }
+  }
+}
@@ -0,0 +1,228 @@
+package org.sdkit.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Opt-in cache of the arrays read by {@link IO#readArray(Path, String)}, for
+ * reference files loaded over and over.
+ *
+ * <p>
+ * Entries are keyed by file, delimiter, last-modified time and size, so a
+ * file changed on disk is read again. The cache holds at most the configured
+ * number of bytes of values and evicts the least recently used entries first.
+ * Concurrent misses on the same file wait for a single read.
+ *
+ * <p>
+ * The returned arrays are shared between callers and must not be modified.
+ *
+ */
+public final class ArrayFileCache {
+
+  private static final int ARRAY_OVERHEAD = 16;
+
+  private final LoadingCache<Key, double[]> cache;
+  private final ConcurrentMap<Key, Key> latest = new ConcurrentHashMap<>();
+
+  /**
+   * @param maxBytes the maximum size of the cached values
+   */
+  public ArrayFileCache(long maxBytes) {
+    if (maxBytes < 0) {
+      throw new IllegalArgumentException("maxBytes must not be negative: " + maxBytes); //$NON-NLS-1$
+    }
+    // one segment: Guava splits the weight budget between its segments
+    cache = CacheBuilder.newBuilder()
+        .concurrencyLevel(1)
+        .maximumWeight(maxBytes)
+        .weigher((Key key, double[] values) -> weight(values))
+        .recordStats()
+        .removalListener((RemovalNotification<Key, double[]> removal) -> {
+          // forget the file once its last entry is gone
+          Key key = removal.getKey();
+          latest.remove(key.version(), key);
+        })
+        .build(CacheLoader.from(key -> {
+          try {
+            return IO.readArray(key.path, key.delimiter);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        }));
+  }
+
+  /**
+   * Returns the values of the file, reading it unless a cached copy matches
+   * its current last-modified time and size.
+   *
+   * @throws IOException if the file cannot be read
+   */
+  public double[] get(Path path, String delimiter) throws IOException {
+    Path file = path.toAbsolutePath().normalize();
+    BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+    Key key = new Key(file, delimiter, attrs.lastModifiedTime().toMillis(), attrs.size());
+
+    // drop the entry of a previous version of the file right away
+    Key previous = latest.put(key.version(), key);
+    if (previous != null && !previous.equals(key)) {
+      cache.invalidate(previous);
+    }
+
+    try {
+      return cache.get(key);
+    } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+      latest.remove(key.version(), key);
+      // rethrow what IO.readArray threw
+      Throwable cause = e.getCause();
+      if (cause instanceof UncheckedIOException) {
+        throw ((UncheckedIOException) cause).getCause();
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IOException(cause);
+    }
+  }
+
+  public double[] get(Path path) throws IOException {
+    return get(path, " "); //$NON-NLS-1$
+  }
+
+  /**
+   * Returns the hit, miss, load and eviction counts since creation.
+   */
+  public Stats stats() {
+    return new Stats(cache.stats());
+  }
+
+  /**
+   * Returns the number of cached files.
+   */
+  public long size() {
+    return cache.size();
+  }
+
+  public void invalidateAll() {
+    cache.invalidateAll();
+    latest.clear();
+  }
+
+  /**
+   * Returns the number of files whose latest version is tracked.
+   */
+  int trackedFileCount() {
+    return latest.size();
+  }
+
+  private static int weight(double[] values) {
+    return (int) Math.min(Integer.MAX_VALUE, ARRAY_OVERHEAD + (long) values.length * Double.BYTES);
+  }
+
+  /**
+   * Snapshot of the counters of a cache.
+   */
+  public static final class Stats {
+    private final long hitCount;
+    private final long missCount;
+    private final long loadCount;
+    private final long loadFailureCount;
+    private final long evictionCount;
+    private final long totalLoadNanos;
+
+    Stats(CacheStats stats) {
+      hitCount = stats.hitCount();
+      missCount = stats.missCount();
+      loadCount = stats.loadCount();
+      loadFailureCount = stats.loadExceptionCount();
+      evictionCount = stats.evictionCount();
+      totalLoadNanos = stats.totalLoadTime();
+    }
+
+    /** Returns the number of lookups which found a cached copy. */
+    public long getHitCount() {
+      return hitCount;
+    }
+
+    /** Returns the number of lookups which had to read the file. */
+    public long getMissCount() {
+      return missCount;
+    }
+
+    /** Returns the number of reads, failed ones included. */
+    public long getLoadCount() {
+      return loadCount;
+    }
+
+    public long getLoadFailureCount() {
+      return loadFailureCount;
+    }
+
+    /** Returns the number of entries evicted to stay within the size limit. */
+    public long getEvictionCount() {
+      return evictionCount;
+    }
+
+    /** Returns the total time spent reading files. */
+    public long getTotalLoadNanos() {
+      return totalLoadNanos;
+    }
+
+    @Override
+    public String toString() {
+      return "ArrayFileCache.Stats[hits=" + hitCount + ", misses=" + missCount //$NON-NLS-1$ //$NON-NLS-2$
+          + ", loads=" + loadCount + ", loadFailures=" + loadFailureCount //$NON-NLS-1$ //$NON-NLS-2$
+          + ", evictions=" + evictionCount + ", loadNanos=" + totalLoadNanos + ']'; //$NON-NLS-1$ //$NON-NLS-2$
+    }
+  }
+
+  private static final class Key {
+    final Path path;
+    final String delimiter;
+    final long lastModified;
+    final long size;
+
+    Key(Path path, String delimiter, long lastModified, long size) {
+      this.path = path;
+      this.delimiter = delimiter;
+      this.lastModified = lastModified;
+      this.size = size;
+    }
+
+    /** Returns the key identifying all versions of the file. */
+    Key version() {
+      return new Key(path, delimiter, 0, -1);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return path.equals(other.path) && delimiter.equals(other.delimiter)
+          && lastModified == other.lastModified && size == other.size;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(path, delimiter, lastModified, size);
+    }
+  }
+}
@@ -0,0 +1,239 @@
+package org.sdkit.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Follows a delimited text file which is being appended to, like
+ * {@code tail -F}, and passes every new row to a sink. Only the bytes appended
+ * since the last read are parsed, and only once their line is complete.
+ *
+ * <p>
+ * A background thread waits for changes of the file through a
+ * {@link WatchService}, and also checks the file periodically because some
+ * watch services are slow or miss events. All the rows appended between two
+ * checks are delivered together, in file order, on that thread. A file
+ * truncated in place is read again from its beginning, and a file replaced by
+ * a new one (rotation) is read to its end before the new one is followed.
+ *
+ * <p>
+ * Closing the follower stops the thread. If reading or the sink failed, the
+ * thread stops and {@link #close()} throws the failure.
+ *
+ */
+public final class ArrayFileFollower implements Closeable {
+
+  static final long DEFAULT_POLL_MILLIS = 1000;
+
+  private final Path path;
+  private final String delimiter;
+  private final ArrayScanner scanner;
+  private final Consumer<double[]> rowSink;
+  private final long pollMillis;
+  private final WatchService watcher;
+  private final Thread thread;
+  private final DoubleArrayBuilder row = new DoubleArrayBuilder();
+
+  private FileChannel channel;
+  private Object fileKey;
+  private long offset;
+  private byte[] buf = new byte[1 << 16];
+  private int len;
+  private volatile boolean closed;
+  private volatile Throwable failure;
+
+  ArrayFileFollower(Path path, String delimiter, Consumer<double[]> rowSink, long pollMillis)
+      throws IOException {
+    this.path = path.toAbsolutePath();
+    this.delimiter = delimiter;
+    this.scanner = ArrayScanner.isLiteral(delimiter) ? new ArrayScanner(delimiter) : null;
+    this.rowSink = Objects.requireNonNull(rowSink);
+    this.pollMillis = pollMillis;
+    this.watcher = this.path.getFileSystem().newWatchService();
+    try {
+      this.path.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+          StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+    } catch (IOException | RuntimeException e) {
+      watcher.close();
+      throw e;
+    }
+    thread = new Thread(this::run, "Follow " + path); //$NON-NLS-1$
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  public Path getPath() {
+    return path;
+  }
+
+  /**
+   * Stops following the file.
+   *
+   * @throws IOException if following the file failed
+   */
+  @Override
+  public void close() throws IOException {
+    closed = true;
+    watcher.close();
+    if (Thread.currentThread() != thread) {
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    Throwable e = failure;
+    if (e instanceof IOException) {
+      throw (IOException) e;
+    }
+    if (e != null) {
+      throw new IOException("Failed to follow " + path, e); //$NON-NLS-1$
+    }
+  }
+
+  private void run() {
+    try {
+      while (!closed) {
+        poll();
+        WatchKey key = watcher.poll(pollMillis, TimeUnit.MILLISECONDS);
+        if (key != null) {
+          // the file is checked whatever the events
+          key.pollEvents();
+          key.reset();
+        }
+      }
+    } catch (ClosedWatchServiceException | InterruptedException e) {
+      // closed
+    } catch (Throwable e) {
+      if (!closed) {
+        failure = e;
+      }
+    } finally {
+      closeChannel();
+    }
+  }
+
+  /**
+   * Reads whatever was appended since the previous call.
+   */
+  private void poll() throws IOException {
+    BasicFileAttributes attrs;
+    try {
+      attrs = Files.readAttributes(path, BasicFileAttributes.class);
+    } catch (NoSuchFileException e) {
+      // rotated away, the new file is not there yet
+      return;
+    }
+    Object key = attrs.fileKey() != null ? attrs.fileKey() : attrs.creationTime();
+    if (channel != null && !key.equals(fileKey)) {
+      // rotated: finish the previous file
+      readAppended();
+      flushLastLine();
+      closeChannel();
+    }
+    if (channel == null) {
+      try {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+      } catch (NoSuchFileException e) {
+        return;
+      }
+      fileKey = key;
+      offset = 0;
+      len = 0;
+    } else if (channel.size() < offset) {
+      // truncated in place
+      offset = 0;
+      len = 0;
+    }
+    readAppended();
+  }
+
+  private void readAppended() throws IOException {
+    while (!closed) {
+      if (len == buf.length) {
+        buf = Arrays.copyOf(buf, buf.length * 2);
+      }
+      int n = channel.read(ByteBuffer.wrap(buf, len, buf.length - len), offset);
+      if (n <= 0) {
+        return;
+      }
+      offset += n;
+      len += n;
+      int consumed = deliverLines(len, false);
+      len -= consumed;
+      System.arraycopy(buf, consumed, buf, 0, len);
+    }
+  }
+
+  private void flushLastLine() {
+    deliverLines(len, true);
+    len = 0;
+  }
+
+  /**
+   * Delivers the rows of the complete lines in {@code [0, to)}, or of all
+   * lines if {@code last}, and returns the number of bytes consumed.
+   */
+  private int deliverLines(int to, boolean last) {
+    ByteBuffer view = ByteBuffer.wrap(buf);
+    int start = 0;
+    for (int i = 0; i < to; ++i) {
+      if (ArrayScanner.isLineTerminator(buf[i])) {
+        deliverLine(view, start, i);
+        start = i + 1;
+      }
+    }
+    if (last && start < to) {
+      deliverLine(view, start, to);
+      start = to;
+    }
+    return start;
+  }
+
+  private void deliverLine(ByteBuffer view, int start, int end) {
+    // also skips the empty line between the '\r' and '\n' of a split "\r\n"
+    if (start == end || buf[start] == '#') {
+      return;
+    }
+    if (scanner != null) {
+      scanner.scanLine(view, start, end, row);
+      double[] values = row.toArray();
+      row.clear();
+      rowSink.accept(values);
+    } else {
+      String[] fields = new String(buf, start, end - start, UTF_8).split(delimiter);
+      double[] values = new double[fields.length];
+      for (int i = 0; i < fields.length; ++i) {
+        values[i] = Double.parseDouble(fields[i]);
+      }
+      rowSink.accept(values);
+    }
+  }
+
+  private void closeChannel() {
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        // read-only
+      }
+      channel = null;
+    }
+  }
+}
@@ -0,0 +1,128 @@
+package org.sdkit.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Header of the binary array format written by
+ * {@link IO#saveArrayBinary(java.nio.file.Path, double[], int)}.
+ *
+ * <p>
+ * The header is {@value #SIZE} bytes long and always little-endian:
+ *
+ * <pre>
+ * offset size field
+ *      0    4 magic "SDKA"
+ *      4    2 format version
+ *      6    1 byte order of the values (0 little-endian, 1 big-endian)
+ *      7    1 reserved
+ *      8    8 number of rows
+ *     16    8 number of columns
+ *     24    8 reserved
+ * </pre>
+ *
+ * It is followed by {@code rows * cols} row-major doubles. Keeping the header
+ * size a multiple of 8 keeps the values aligned in mapped memory.
+ *
+ */
+public final class ArrayFileHeader {
+
+  public static final int SIZE = 32;
+
+  static final int MAGIC = 0x414B4453; // "SDKA" read little-endian
+  static final short VERSION = 1;
+
+  private final int version;
+  private final long rows;
+  private final long cols;
+  private final ByteOrder byteOrder;
+
+  ArrayFileHeader(long rows, long cols) {
+    this(rows, cols, ByteOrder.LITTLE_ENDIAN);
+  }
+
+  ArrayFileHeader(long rows, long cols, ByteOrder byteOrder) {
+    this(VERSION, rows, cols, byteOrder);
+  }
+
+  private ArrayFileHeader(int version, long rows, long cols, ByteOrder byteOrder) {
+    if (rows < 0 || cols < 0) {
+      throw new IllegalArgumentException("Invalid shape " + rows + "x" + cols); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+    this.version = version;
+    this.rows = rows;
+    this.cols = cols;
+    this.byteOrder = byteOrder;
+  }
+
+  public int getVersion() {
+    return version;
+  }
+
+  public long getRows() {
+    return rows;
+  }
+
+  public long getCols() {
+    return cols;
+  }
+
+  public ByteOrder getByteOrder() {
+    return byteOrder;
+  }
+
+  /**
+   * Returns the number of values following the header.
+   */
+  public long getLength() {
+    return rows * cols;
+  }
+
+  void write(ByteBuffer buffer) {
+    ByteOrder order = buffer.order();
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    buffer.putInt(MAGIC);
+    buffer.putShort((short) version);
+    buffer.put((byte) (byteOrder == ByteOrder.LITTLE_ENDIAN ? 0 : 1));
+    buffer.put((byte) 0);
+    buffer.putLong(rows);
+    buffer.putLong(cols);
+    buffer.putLong(0);
+    buffer.order(order);
+  }
+
+  static ArrayFileHeader read(ByteBuffer buffer) throws IOException {
+    if (buffer.remaining() < SIZE) {
+      throw new IOException("Not a binary array file: header truncated"); //$NON-NLS-1$
+    }
+    ByteOrder order = buffer.order();
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    try {
+      if (buffer.getInt() != MAGIC) {
+        throw new IOException("Not a binary array file: bad magic"); //$NON-NLS-1$
+      }
+      int version = buffer.getShort() & 0xffff;
+      if (version > VERSION) {
+        throw new IOException("Unsupported binary array version " + version); //$NON-NLS-1$
+      }
+      ByteOrder byteOrder = buffer.get() == 0 ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+      buffer.get();
+      long rows = buffer.getLong();
+      long cols = buffer.getLong();
+      buffer.getLong();
+      if (rows < 0 || cols < 0 || (cols != 0 && rows > Long.MAX_VALUE / 8 / cols)) {
+        throw new IOException("Invalid binary array shape " + rows + "x" + cols); //$NON-NLS-1$ //$NON-NLS-2$
+      }
+      return new ArrayFileHeader(version, rows, cols, byteOrder);
+    } finally {
+      buffer.order(order);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "ArrayFileHeader [version=" + version + ", rows=" + rows + ", cols=" + cols //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        + ", byteOrder=" + byteOrder + "]"; //$NON-NLS-1$ //$NON-NLS-2$
+  }
+}
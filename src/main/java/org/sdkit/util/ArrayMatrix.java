@@ -0,0 +1,94 @@
+package org.sdkit.util;
+
+import java.util.Arrays;
+import org.apache.commons.math3.linear.RealMatrix;
+
+/**
+ * Dense matrix stored row-major in a single {@code double[]}, as returned by
+ * {@link IO#readMatrix(java.nio.file.Path, String)}.
+ *
+ */
+public final class ArrayMatrix {
+
+  private final double[] data;
+  private final int rows;
+  private final int cols;
+
+  /**
+   * Wraps the row-major array without copying it.
+   *
+   * @param data the values, {@code rows * cols} of them
+   * @param rows the number of rows
+   * @param cols the number of columns
+   */
+  public ArrayMatrix(double[] data, int rows, int cols) {
+    if (rows < 0 || cols < 0 || (long) rows * cols != data.length) {
+      throw new IllegalArgumentException("Cannot shape " + data.length + " values into " + rows //$NON-NLS-1$ //$NON-NLS-2$
+          + "x" + cols); //$NON-NLS-1$
+    }
+    this.data = data;
+    this.rows = rows;
+    this.cols = cols;
+  }
+
+  public int getRows() {
+    return rows;
+  }
+
+  public int getCols() {
+    return cols;
+  }
+
+  /**
+   * Returns the backing row-major array, not a copy.
+   */
+  public double[] getData() {
+    return data;
+  }
+
+  public double get(int row, int col) {
+    return data[index(row, col)];
+  }
+
+  public void set(int row, int col, double value) {
+    data[index(row, col)] = value;
+  }
+
+  public double[] getRow(int row) {
+    int start = index(row, 0);
+    return Arrays.copyOfRange(data, start, start + cols);
+  }
+
+  public double[][] toArray2D() {
+    double[][] arr = new double[rows][];
+    for (int row = 0; row < rows; ++row) {
+      arr[row] = Arrays.copyOfRange(data, row * cols, (row + 1) * cols);
+    }
+    return arr;
+  }
+
+  /**
+   * Returns a commons-math view sharing the backing array: changes made
+   * through either one are visible in the other. commons-math does not
+   * support empty matrices.
+   */
+  public RealMatrix asRealMatrix() {
+    if (rows == 0 || cols == 0) {
+      throw new IllegalStateException("commons-math matrices cannot be empty"); //$NON-NLS-1$
+    }
+    return new RowMajorRealMatrix(data, rows, cols);
+  }
+
+  private int index(int row, int col) {
+    if (row < 0 || row >= rows || col < 0 || col >= cols) {
+      throw new IndexOutOfBoundsException(
+          "(" + row + ", " + col + ") outside of " + rows + "x" + cols); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+    }
+    return row * cols + col;
+  }
+
+  @Override
+  public String toString() {
+    return "ArrayMatrix [rows=" + rows + ", cols=" + cols + "]"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+  }
+}
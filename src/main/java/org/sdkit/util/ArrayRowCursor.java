@@ -0,0 +1,146 @@
+package org.sdkit.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.DoubleConsumer;
+import java.util.stream.DoubleStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Forward-only cursor over the rows of a delimited text file, as returned by
+ * {@link IO#rows(java.nio.file.Path, String)}. Rows follow the rules of
+ * {@link IO#readArray}, and each one is parsed into a reused buffer, so memory
+ * use does not depend on the size of the file.
+ *
+ */
+public final class ArrayRowCursor implements Closeable {
+
+  private final LineInput lines;
+  private final ArrayScanner scanner;
+  private final BufferedReader reader;
+  private final String delimiter;
+  private final DoubleArrayBuilder row = new DoubleArrayBuilder(64);
+
+  ArrayRowCursor(InputStream in, String delimiter) {
+    this.delimiter = delimiter;
+    if (ArrayScanner.isLiteral(delimiter)) {
+      this.lines = new LineInput(in);
+      this.scanner = new ArrayScanner(delimiter);
+      this.reader = null;
+    } else {
+      this.lines = null;
+      this.scanner = null;
+      this.reader = new BufferedReader(new InputStreamReader(in, UTF_8));
+    }
+  }
+
+  /**
+   * Reads the next row into {@code dest}, starting at index 0.
+   *
+   * @param dest the array receiving the values, usually reused for every row
+   * @return the number of values of the row or -1 when there are no more rows
+   * @throws IOException if the file cannot be read
+   * @throws IllegalArgumentException if the row does not fit into {@code dest}
+   */
+  public int next(double[] dest) throws IOException {
+    if (!advance()) {
+      return -1;
+    }
+    if (row.size() > dest.length) {
+      throw new IllegalArgumentException("Row of " + row.size() //$NON-NLS-1$
+          + " values does not fit into an array of length " + dest.length); //$NON-NLS-1$
+    }
+    row.copyTo(dest, 0);
+    return row.size();
+  }
+
+  /**
+   * Appends the next row to {@code dest}.
+   *
+   * @return the number of values of the row or -1 when there are no more rows
+   */
+  int next(DoubleArrayBuilder dest) throws IOException {
+    if (!advance()) {
+      return -1;
+    }
+    dest.addAll(row);
+    return row.size();
+  }
+
+  /**
+   * Returns the remaining values of all rows as a lazy sequential stream.
+   * Closing the stream closes this cursor.
+   */
+  public DoubleStream values() {
+    Spliterator.OfDouble spliterator = new Spliterators.AbstractDoubleSpliterator(Long.MAX_VALUE,
+        Spliterator.ORDERED | Spliterator.NONNULL) {
+
+      private int index = row.size();
+
+      @Override
+      public boolean tryAdvance(DoubleConsumer action) {
+        while (index >= row.size()) {
+          try {
+            if (!advance()) {
+              return false;
+            }
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+          index = 0;
+        }
+        action.accept(row.get(index++));
+        return true;
+      }
+    };
+    return StreamSupport.doubleStream(spliterator, false).onClose(() -> {
+      try {
+        close();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+  }
+
+  private boolean advance() throws IOException {
+    row.clear();
+    if (scanner != null) {
+      while (lines.next()) {
+        scanner.scanLine(lines.buffer(), lines.start(), lines.end(), row);
+        if (row.size() > 0) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    String line;
+    while ((line = reader.readLine()) != null) {
+      if (!line.isEmpty() && !line.startsWith("#")) { //$NON-NLS-1$
+        for (String val : line.split(delimiter)) {
+          row.add(Double.parseDouble(val));
+        }
+        if (row.size() > 0) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (lines != null) {
+      lines.close();
+    } else {
+      reader.close();
+    }
+  }
+}
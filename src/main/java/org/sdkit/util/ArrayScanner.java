@@ -0,0 +1,284 @@
+package org.sdkit.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Hand-rolled scanner for the delimited text written by {@link IO#saveArray}.
+ * Values are parsed straight from the UTF-8 bytes into a
+ * {@link DoubleArrayBuilder}, following the rules of {@link IO#readArray}:
+ * empty lines and lines starting with {@code #} are skipped, and each field
+ * yields exactly the value {@link Double#parseDouble} would return.
+ *
+ * <p>
+ * Decimal literals with at most 15 significant digits and a small exponent
+ * are converted with a single exact floating-point operation (Clinger's fast
+ * path), which is correctly rounded. Everything else falls back to
+ * {@link Double#parseDouble}.
+ *
+ */
+final class ArrayScanner {
+
+  private static final String REGEX_META_CHARS = ".$|()[]{}^?*+\\\r\n"; //$NON-NLS-1$
+
+  private static final int MAX_FAST_DIGITS = 15;
+  private static final double[] POWERS_OF_TEN = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+      1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
+  private final byte[] delimiter;
+  private byte[] scratch = new byte[64];
+
+  ArrayScanner(String delimiter) {
+    if (!isLiteral(delimiter)) {
+      throw new IllegalArgumentException("Not a literal delimiter: " + delimiter); //$NON-NLS-1$
+    }
+    this.delimiter = delimiter.getBytes(UTF_8);
+  }
+
+  /**
+   * Returns true when the delimiter, interpreted as a regular expression by
+   * {@link String#split(String)}, only matches itself and can therefore be
+   * handled by this scanner.
+   */
+  static boolean isLiteral(String delimiter) {
+    if (delimiter.isEmpty()) {
+      return false;
+    }
+    for (int i = 0; i < delimiter.length(); ++i) {
+      if (REGEX_META_CHARS.indexOf(delimiter.charAt(i)) >= 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Scans the whole stream.
+   */
+  void scan(InputStream in, DoubleArrayBuilder out) throws IOException {
+    LineInput lines = new LineInput(in);
+    while (lines.next()) {
+      scanLine(lines.buffer(), lines.start(), lines.end(), out);
+    }
+  }
+
+  /**
+   * Scans the complete lines in {@code [from, to)} using absolute access.
+   *
+   * @param last true when no more input follows, in which case a trailing line
+   *        without terminator is scanned too
+   * @return the index following the last consumed line
+   */
+  int scan(ByteBuffer buf, int from, int to, boolean last, DoubleArrayBuilder out) {
+    int start = from;
+    while (start < to) {
+      int end = start;
+      while (end < to && !isLineTerminator(buf.get(end))) {
+        ++end;
+      }
+      if (end == to && !last) {
+        break;
+      }
+      scanLine(buf, start, end, out);
+      if (end < to && buf.get(end) == '\r' && end + 1 < to && buf.get(end + 1) == '\n') {
+        ++end;
+      }
+      start = end == to ? to : end + 1;
+    }
+    return start;
+  }
+
+  /**
+   * Scans a single line without its terminator. Mirrors
+   * {@code line.split(delimiter)}: trailing empty fields are dropped, any other
+   * empty field is a {@link NumberFormatException}.
+   */
+  void scanLine(ByteBuffer buf, int start, int end, DoubleArrayBuilder out) {
+    if (start == end || buf.get(start) == '#') {
+      return;
+    }
+    int pendingEmpty = 0;
+    int fieldStart = start;
+    while (true) {
+      int fieldEnd = indexOfDelimiter(buf, fieldStart, end);
+      if (fieldEnd == fieldStart) {
+        ++pendingEmpty;
+      } else {
+        if (pendingEmpty > 0) {
+          throw new NumberFormatException("empty String"); //$NON-NLS-1$
+        }
+        out.add(parseDouble(buf, fieldStart, fieldEnd));
+      }
+      if (fieldEnd == end) {
+        return;
+      }
+      fieldStart = fieldEnd + delimiter.length;
+    }
+  }
+
+  /**
+   * Scans only the fields of a line whose index is in {@code columns}, which
+   * must be sorted and distinct, adding field {@code columns[k]} to
+   * {@code out[k]}. Other fields are delimited but never parsed, and nothing
+   * after the last selected field is examined. An empty selected field is a
+   * {@link NumberFormatException}.
+   *
+   * @return the number of selected fields found, or -1 for a skipped line
+   */
+  int scanColumns(ByteBuffer buf, int start, int end, int[] columns, DoubleArrayBuilder[] out) {
+    if (start == end || buf.get(start) == '#') {
+      return -1;
+    }
+    int k = 0;
+    int column = 0;
+    int fieldStart = start;
+    while (k < columns.length) {
+      int fieldEnd = indexOfDelimiter(buf, fieldStart, end);
+      if (column == columns[k]) {
+        if (fieldEnd == fieldStart) {
+          if (fieldEnd == end) {
+            break;
+          }
+          throw new NumberFormatException("empty String"); //$NON-NLS-1$
+        }
+        out[k++].add(parseDouble(buf, fieldStart, fieldEnd));
+      }
+      if (fieldEnd == end) {
+        break;
+      }
+      ++column;
+      fieldStart = fieldEnd + delimiter.length;
+    }
+    return k;
+  }
+
+  static boolean isLineTerminator(byte b) {
+    return b == '\n' || b == '\r';
+  }
+
+  int indexOfDelimiter(ByteBuffer buf, int from, int to) {
+    byte first = delimiter[0];
+    int last = to - delimiter.length;
+    outer: for (int i = from; i <= last; ++i) {
+      if (buf.get(i) != first) {
+        continue;
+      }
+      for (int j = 1; j < delimiter.length; ++j) {
+        if (buf.get(i + j) != delimiter[j]) {
+          continue outer;
+        }
+      }
+      return i;
+    }
+    return to;
+  }
+
+  /**
+   * Parses the field {@code [start, end)} exactly like
+   * {@link Double#parseDouble(String)}.
+   */
+  double parseDouble(ByteBuffer buf, int start, int end) {
+    int i = start;
+    int e = end;
+    while (i < e && (buf.get(i) & 0xff) <= ' ') {
+      ++i;
+    }
+    while (e > i && (buf.get(e - 1) & 0xff) <= ' ') {
+      --e;
+    }
+
+    boolean negative = false;
+    if (i < e) {
+      byte b = buf.get(i);
+      if (b == '-') {
+        negative = true;
+        ++i;
+      } else if (b == '+') {
+        ++i;
+      }
+    }
+
+    long mantissa = 0;
+    int digits = 0;
+    int exponent = 0;
+    boolean anyDigit = false;
+    int d;
+    while (i < e && (d = buf.get(i) - '0') >= 0 && d <= 9) {
+      anyDigit = true;
+      mantissa = mantissa * 10 + d;
+      if (mantissa != 0 && ++digits > MAX_FAST_DIGITS) {
+        return parseSlow(buf, start, end);
+      }
+      ++i;
+    }
+    if (i < e && buf.get(i) == '.') {
+      ++i;
+      while (i < e && (d = buf.get(i) - '0') >= 0 && d <= 9) {
+        anyDigit = true;
+        mantissa = mantissa * 10 + d;
+        if (mantissa != 0 && ++digits > MAX_FAST_DIGITS) {
+          return parseSlow(buf, start, end);
+        }
+        --exponent;
+        ++i;
+      }
+    }
+    if (!anyDigit) {
+      return parseSlow(buf, start, end);
+    }
+    if (i < e && (buf.get(i) | 0x20) == 'e') {
+      ++i;
+      boolean negativeExponent = false;
+      if (i < e && (buf.get(i) == '-' || buf.get(i) == '+')) {
+        negativeExponent = buf.get(i) == '-';
+        ++i;
+      }
+      int exponentStart = i;
+      int value = 0;
+      while (i < e && (d = buf.get(i) - '0') >= 0 && d <= 9) {
+        value = value * 10 + d;
+        if (value > 9999) {
+          return parseSlow(buf, start, end);
+        }
+        ++i;
+      }
+      if (i == exponentStart) {
+        return parseSlow(buf, start, end);
+      }
+      exponent += negativeExponent ? -value : value;
+    }
+    if (i != e) {
+      // suffixes (d, f), hexadecimal, NaN, Infinity or garbage
+      return parseSlow(buf, start, end);
+    }
+
+    double value;
+    if (mantissa == 0) {
+      value = 0.0;
+    } else if (exponent == 0) {
+      value = mantissa;
+    } else if (exponent > 0 && exponent < POWERS_OF_TEN.length) {
+      value = mantissa * POWERS_OF_TEN[exponent];
+    } else if (exponent < 0 && -exponent < POWERS_OF_TEN.length) {
+      value = mantissa / POWERS_OF_TEN[-exponent];
+    } else {
+      return parseSlow(buf, start, end);
+    }
+    return negative ? -value : value;
+  }
+
+  private double parseSlow(ByteBuffer buf, int start, int end) {
+    int len = end - start;
+    if (scratch.length < len) {
+      scratch = new byte[Math.max(len, scratch.length * 2)];
+    }
+    for (int i = 0; i < len; ++i) {
+      scratch[i] = buf.get(start + i);
+    }
+    return Double.parseDouble(new String(scratch, 0, len, UTF_8));
+  }
+}
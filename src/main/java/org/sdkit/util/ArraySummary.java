@@ -0,0 +1,150 @@
+package org.sdkit.util;
+
+import java.util.Arrays;
+
+/**
+ * Per-column summary statistics of a delimited text file, computed in a
+ * single pass by {@link IO#summarize(java.nio.file.Path, String)} without
+ * keeping the values.
+ *
+ * <p>
+ * Mean and variance are accumulated with Welford's algorithm and partial
+ * summaries are combined with the pairwise update of Chan et al., so results
+ * do not depend on how the file was split. Quantiles are approximated by a
+ * mergeable sketch within a relative error of 1%.
+ *
+ */
+public final class ArraySummary {
+
+  private long[] count = new long[0];
+  private double[] min = new double[0];
+  private double[] max = new double[0];
+  private double[] mean = new double[0];
+  private double[] m2 = new double[0];
+  private QuantileSketch[] sketches = new QuantileSketch[0];
+
+  ArraySummary() {}
+
+  /**
+   * Returns the number of columns, that is the length of the longest row.
+   */
+  public int getColumnCount() {
+    return count.length;
+  }
+
+  /**
+   * Returns the number of rows having the column.
+   */
+  public long getCount(int col) {
+    return count[col];
+  }
+
+  public double getMin(int col) {
+    return count[col] == 0 ? Double.NaN : min[col];
+  }
+
+  public double getMax(int col) {
+    return count[col] == 0 ? Double.NaN : max[col];
+  }
+
+  public double getMean(int col) {
+    return count[col] == 0 ? Double.NaN : mean[col];
+  }
+
+  /**
+   * Returns the sample variance (bias-corrected), like
+   * {@link org.apache.commons.math3.stat.descriptive.moment.Variance}.
+   */
+  public double getVariance(int col) {
+    long n = count[col];
+    return n == 0 ? Double.NaN : n == 1 ? 0 : m2[col] / (n - 1);
+  }
+
+  public double getStandardDeviation(int col) {
+    return Math.sqrt(getVariance(col));
+  }
+
+  /**
+   * Returns an approximation of the {@code q}-quantile of the column, within
+   * a relative error of 1% of the exact value.
+   *
+   * @param q the quantile, in [0, 1]
+   */
+  public double getQuantile(int col, double q) {
+    return sketches[col].quantile(q);
+  }
+
+  void add(DoubleArrayBuilder row) {
+    int len = row.size();
+    ensureColumns(len);
+    for (int j = 0; j < len; ++j) {
+      double value = row.get(j);
+      long n = ++count[j];
+      double delta = value - mean[j];
+      mean[j] += delta / n;
+      m2[j] += delta * (value - mean[j]);
+      if (n == 1) {
+        min[j] = value;
+        max[j] = value;
+      } else {
+        min[j] = Math.min(min[j], value);
+        max[j] = Math.max(max[j], value);
+      }
+      sketches[j].add(value);
+    }
+  }
+
+  void merge(ArraySummary other) {
+    ensureColumns(other.getColumnCount());
+    for (int j = 0; j < other.getColumnCount(); ++j) {
+      long nb = other.count[j];
+      if (nb == 0) {
+        continue;
+      }
+      long na = count[j];
+      if (na == 0) {
+        min[j] = other.min[j];
+        max[j] = other.max[j];
+      } else {
+        min[j] = Math.min(min[j], other.min[j]);
+        max[j] = Math.max(max[j], other.max[j]);
+      }
+      long n = na + nb;
+      double delta = other.mean[j] - mean[j];
+      mean[j] += delta * nb / n;
+      m2[j] += other.m2[j] + delta * delta * ((double) na * nb / n);
+      count[j] = n;
+      sketches[j].merge(other.sketches[j]);
+    }
+  }
+
+  private void ensureColumns(int cols) {
+    int old = count.length;
+    if (cols <= old) {
+      return;
+    }
+    count = Arrays.copyOf(count, cols);
+    min = Arrays.copyOf(min, cols);
+    max = Arrays.copyOf(max, cols);
+    mean = Arrays.copyOf(mean, cols);
+    m2 = Arrays.copyOf(m2, cols);
+    sketches = Arrays.copyOf(sketches, cols);
+    for (int j = old; j < cols; ++j) {
+      sketches[j] = new QuantileSketch();
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("ArraySummary ["); //$NON-NLS-1$
+    for (int j = 0; j < getColumnCount(); ++j) {
+      if (j > 0) {
+        sb.append(", "); //$NON-NLS-1$
+      }
+      sb.append("{count=").append(count[j]).append(", min=").append(getMin(j)) //$NON-NLS-1$ //$NON-NLS-2$
+          .append(", max=").append(getMax(j)).append(", mean=").append(getMean(j)) //$NON-NLS-1$ //$NON-NLS-2$
+          .append(", variance=").append(getVariance(j)).append('}'); //$NON-NLS-1$
+    }
+    return sb.append(']').toString();
+  }
+}
@@ -0,0 +1,96 @@
+package org.sdkit.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes the delimited text format read by {@link IO#readArray} as UTF-8.
+ * Doubles are formatted by {@link DoubleFormat} straight into a reused byte
+ * buffer, so no String is created per value.
+ *
+ */
+final class ArrayTextWriter implements Closeable, Flushable {
+
+  static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+  private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(UTF_8);
+
+  private final OutputStream out;
+  private final byte[] buffer;
+  private int count;
+
+  ArrayTextWriter(OutputStream out) {
+    this(out, DEFAULT_BUFFER_SIZE);
+  }
+
+  ArrayTextWriter(OutputStream out, int bufferSize) {
+    this.out = out;
+    this.buffer = new byte[Math.max(bufferSize, DoubleFormat.MAX_CHARS)];
+  }
+
+  void write(double value) throws IOException {
+    if (count + DoubleFormat.MAX_CHARS > buffer.length) {
+      flushBuffer();
+    }
+    count = DoubleFormat.format(value, buffer, count);
+  }
+
+  void write(String text) throws IOException {
+    write(text.getBytes(UTF_8));
+  }
+
+  void write(byte[] bytes) throws IOException {
+    if (bytes.length > buffer.length - count) {
+      flushBuffer();
+      if (bytes.length > buffer.length) {
+        out.write(bytes);
+        return;
+      }
+    }
+    System.arraycopy(bytes, 0, buffer, count, bytes.length);
+    count += bytes.length;
+  }
+
+  void newLine() throws IOException {
+    write(LINE_SEPARATOR);
+  }
+
+  /**
+   * Writes {@code length} values separated by {@code delimiter}, followed by a
+   * line separator.
+   */
+  void writeRow(double[] values, int offset, int length, byte[] delimiter) throws IOException {
+    for (int i = 0; i < length; ++i) {
+      if (i > 0) {
+        write(delimiter);
+      }
+      write(values[offset + i]);
+    }
+    newLine();
+  }
+
+  void flushBuffer() throws IOException {
+    if (count > 0) {
+      out.write(buffer, 0, count);
+      count = 0;
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    flushBuffer();
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      flushBuffer();
+    } finally {
+      out.close();
+    }
+  }
+}
@@ -0,0 +1,345 @@
+package org.sdkit.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Appends rows to a delimited text file from a background thread, as returned
+ * by {@link IO#openArrayWriter(java.nio.file.Path, int, String)}.
+ *
+ * <p>
+ * Writing a row only copies its values into a bounded ring buffer. A flusher
+ * thread formats whatever has accumulated into a large byte buffer and hands
+ * it to the file in big sequential writes, so the producer never waits for
+ * the disk unless it outruns it by a whole ring. {@link #offerRow(double[])}
+ * never waits at all, and {@link #flush()} and {@link #close()} wait without
+ * blocking the producers.
+ *
+ */
+public final class ArrayWriter implements Closeable, Flushable {
+
+  /**
+   * When written data is forced to the storage device with
+   * {@link FileChannel#force(boolean)}.
+   */
+  public enum SyncPolicy {
+    /** Never, the operating system decides. */
+    NONE,
+    /** On {@link ArrayWriter#flush()} and {@link ArrayWriter#close()}. */
+    ON_FLUSH,
+    /** Every time the flusher has written all pending values. */
+    EVERY_BATCH
+  }
+
+  /** Default ring capacity, in values. */
+  public static final int DEFAULT_CAPACITY = 1 << 20;
+
+  private static final int WRITE_BUFFER_SIZE = 1 << 20;
+  private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+  private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+  private final FileChannel channel;
+  private final ArrayTextWriter writer;
+  private final byte[] delimiter;
+  private final int nbCols;
+  private final SyncPolicy syncPolicy;
+  private final double[] ring;
+  private final Thread flusher;
+
+  // producer side, written under producerLock
+  private final ReentrantLock producerLock = new ReentrantLock();
+  private volatile long published;
+  private volatile boolean closed;
+  // highest position requested by flush() or close()
+  private final AtomicLong flushRequest = new AtomicLong();
+
+  // flusher side
+  private volatile long consumed;
+  private volatile long flushed;
+  private volatile long forced;
+  private volatile boolean flusherParked;
+  private volatile IOException failure;
+  private int column;
+
+  ArrayWriter(FileChannel channel, int nbCols, String delimiter, int capacity,
+      SyncPolicy syncPolicy) {
+    if (nbCols <= 0) {
+      throw new IllegalArgumentException("nbCols must be positive: " + nbCols); //$NON-NLS-1$
+    }
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be positive: " + capacity); //$NON-NLS-1$
+    }
+    this.channel = channel;
+    this.writer = new ArrayTextWriter(Channels.newOutputStream(channel), WRITE_BUFFER_SIZE);
+    this.delimiter = delimiter.getBytes(UTF_8);
+    this.nbCols = nbCols;
+    this.syncPolicy = syncPolicy;
+    this.ring = new double[capacity];
+    this.flusher = new Thread(this::runFlusher, "ArrayWriter flusher"); //$NON-NLS-1$
+    this.flusher.setDaemon(true);
+    this.flusher.start();
+  }
+
+  public int getColumnCount() {
+    return nbCols;
+  }
+
+  /**
+   * Queues a row, waiting only while the ring buffer is full.
+   *
+   * @param row exactly {@link #getColumnCount()} values
+   * @throws IOException if the writer is closed or a background write failed
+   */
+  public void writeRow(double[] row) throws IOException {
+    checkRowLength(row.length);
+    producerLock.lock();
+    try {
+      put(row, 0, row.length);
+    } finally {
+      producerLock.unlock();
+    }
+  }
+
+  /**
+   * Queues a block of consecutive rows, waiting only while the ring buffer is
+   * full.
+   *
+   * @param block row-major values
+   * @param offset index of the first value
+   * @param length number of values, a multiple of {@link #getColumnCount()}
+   * @throws IOException if the writer is closed or a background write failed
+   */
+  public void writeRows(double[] block, int offset, int length) throws IOException {
+    checkBlockLength(length);
+    producerLock.lock();
+    try {
+      put(block, offset, length);
+    } finally {
+      producerLock.unlock();
+    }
+  }
+
+  /**
+   * Queues a row unless the ring buffer is full or another thread is queuing
+   * values. Never waits.
+   *
+   * @return false if the row was not queued
+   * @throws IOException if the writer is closed or a background write failed
+   */
+  public boolean offerRow(double[] row) throws IOException {
+    checkRowLength(row.length);
+    return offer(row, 0, row.length);
+  }
+
+  /**
+   * Queues a block of consecutive rows unless it does not fit into the free
+   * part of the ring buffer or another thread is queuing values. Never waits.
+   *
+   * @return false if the block was not queued
+   * @throws IOException if the writer is closed or a background write failed
+   */
+  public boolean offerRows(double[] block, int offset, int length)
+      throws IOException {
+    checkBlockLength(length);
+    return offer(block, offset, length);
+  }
+
+  /**
+   * Waits until every queued value has been written to the file and, unless
+   * the policy is {@link SyncPolicy#NONE}, forced to the storage device.
+   */
+  @Override
+  public void flush() throws IOException {
+    checkOpen();
+    long target = published;
+    flushRequest.accumulateAndGet(target, Math::max);
+    LockSupport.unpark(flusher);
+    while (synced() < target) {
+      checkFailure();
+      LockSupport.parkNanos(this, PARK_NANOS);
+    }
+    checkFailure();
+  }
+
+  /**
+   * Writes the queued values, stops the flusher and closes the file.
+   */
+  @Override
+  public void close() throws IOException {
+    boolean closing;
+    producerLock.lock();
+    try {
+      closing = !closed;
+      if (closing) {
+        flushRequest.accumulateAndGet(published, Math::max);
+        closed = true;
+      }
+    } finally {
+      producerLock.unlock();
+    }
+    LockSupport.unpark(flusher);
+    boolean interrupted = false;
+    while (flusher.isAlive()) {
+      try {
+        flusher.join();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    try {
+      if (closing) {
+        writer.close();
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    checkFailure();
+  }
+
+  private void checkRowLength(int length) {
+    if (length != nbCols) {
+      throw new IllegalArgumentException(
+          "Row has " + length + " values instead of " + nbCols); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+  }
+
+  private void checkBlockLength(int length) {
+    if (length % nbCols != 0) {
+      throw new IllegalArgumentException(
+          "Block of " + length + " values is not made of rows of " + nbCols); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+  }
+
+  private void checkOpen() throws IOException {
+    if (closed) {
+      throw new IOException("ArrayWriter is closed"); //$NON-NLS-1$
+    }
+    checkFailure();
+  }
+
+  private void checkFailure() throws IOException {
+    IOException e = failure;
+    if (e != null) {
+      throw new IOException("Background write failed", e); //$NON-NLS-1$
+    }
+  }
+
+  private boolean offer(double[] values, int offset, int length) throws IOException {
+    if (!producerLock.tryLock()) {
+      checkOpen();
+      return false;
+    }
+    try {
+      checkOpen();
+      if (ring.length - (published - consumed) < length) {
+        return false;
+      }
+      publish(values, offset, length);
+      return true;
+    } finally {
+      producerLock.unlock();
+    }
+  }
+
+  private void put(double[] values, int offset, int length) throws IOException {
+    checkOpen();
+    int off = offset;
+    int remaining = length;
+    while (remaining > 0) {
+      long free;
+      while ((free = ring.length - (published - consumed)) == 0) {
+        checkFailure();
+        LockSupport.unpark(flusher);
+        LockSupport.parkNanos(this, PARK_NANOS);
+      }
+      int n = (int) Math.min(free, remaining);
+      publish(values, off, n);
+      off += n;
+      remaining -= n;
+    }
+  }
+
+  private void publish(double[] values, int offset, int length) {
+    long tail = published;
+    int index = (int) (tail % ring.length);
+    int first = Math.min(length, ring.length - index);
+    System.arraycopy(values, offset, ring, index, first);
+    System.arraycopy(values, offset + first, ring, 0, length - first);
+    published = tail + length;
+    if (flusherParked) {
+      LockSupport.unpark(flusher);
+    }
+  }
+
+  private void runFlusher() {
+    try {
+      while (true) {
+        long available = published;
+        if (available > consumed) {
+          drain(available);
+        }
+        if (published == consumed) {
+          // idle: hand the batch over to the file
+          writer.flushBuffer();
+          flushed = consumed;
+          if (forced < flushed && (syncPolicy == SyncPolicy.EVERY_BATCH
+              || syncPolicy == SyncPolicy.ON_FLUSH && (forced < flushRequest.get() || closed))) {
+            channel.force(false);
+            forced = flushed;
+          }
+
+          if (closed && published == consumed) {
+            return;
+          }
+          flusherParked = true;
+          if (published == consumed && !closed && flushRequest.get() <= synced()) {
+            LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+          }
+          flusherParked = false;
+        }
+      }
+    } catch (IOException e) {
+      failure = e;
+    } catch (RuntimeException | Error e) {
+      failure = new IOException(e);
+      throw e;
+    }
+  }
+
+  /**
+   * Returns the number of values which are in the file and, depending on the
+   * policy, forced to the storage device.
+   */
+  private long synced() {
+    return syncPolicy == SyncPolicy.NONE ? flushed : forced;
+  }
+
+  private void drain(long available) throws IOException {
+    long pos = consumed;
+    while (pos < available) {
+      int index = (int) (pos % ring.length);
+      int n = (int) Math.min(available - pos, ring.length - index);
+      for (int i = index; i < index + n; ++i) {
+        writer.write(ring[i]);
+        if (++column == nbCols) {
+          column = 0;
+          writer.newLine();
+        } else {
+          writer.write(delimiter);
+        }
+      }
+      pos += n;
+      consumed = pos;
+    }
+  }
+}
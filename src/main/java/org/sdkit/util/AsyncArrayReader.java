@@ -0,0 +1,115 @@
+package org.sdkit.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Reads an array file with an {@link AsynchronousFileChannel}: no thread
+ * waits for the disk, and each chunk is parsed on the given executor before
+ * the next read is issued. Completing or cancelling the future closes the
+ * channel.
+ *
+ */
+final class AsyncArrayReader implements CompletionHandler<Integer, Void> {
+
+  private static final int CHUNK_SIZE = 1 << 16;
+
+  private final AsynchronousFileChannel channel;
+  private final ArrayScanner scanner;
+  private final Executor executor;
+  private final CompletableFuture<double[]> future;
+  private final DoubleArrayBuilder values = new DoubleArrayBuilder();
+  private byte[] buf = new byte[CHUNK_SIZE];
+  private int len;
+  private long position;
+
+  private AsyncArrayReader(AsynchronousFileChannel channel, String delimiter, Executor executor,
+      CompletableFuture<double[]> future) {
+    this.channel = channel;
+    this.scanner = new ArrayScanner(delimiter);
+    this.executor = executor;
+    this.future = future;
+  }
+
+  static CompletableFuture<double[]> read(Path path, String delimiter, Executor executor) {
+    CompletableFuture<double[]> future = new CompletableFuture<>();
+    AsynchronousFileChannel channel;
+    try {
+      channel = AsynchronousFileChannel.open(path, StandardOpenOption.READ);
+    } catch (IOException | RuntimeException e) {
+      future.completeExceptionally(e);
+      return future;
+    }
+    future.whenComplete((result, e) -> {
+      try {
+        channel.close();
+      } catch (IOException ignored) {
+        // nothing left to read
+      }
+    });
+    new AsyncArrayReader(channel, delimiter, executor, future).readNext();
+    return future;
+  }
+
+  private void readNext() {
+    if (future.isDone()) {
+      return;
+    }
+    try {
+      channel.read(ByteBuffer.wrap(buf, len, buf.length - len), position, null, this);
+    } catch (RuntimeException e) {
+      future.completeExceptionally(e);
+    }
+  }
+
+  @Override
+  public void completed(Integer result, Void attachment) {
+    try {
+      executor.execute(() -> {
+        try {
+          onRead(result);
+        } catch (RuntimeException | Error e) {
+          future.completeExceptionally(e);
+        }
+      });
+    } catch (RuntimeException e) {
+      future.completeExceptionally(e);
+    }
+  }
+
+  @Override
+  public void failed(Throwable e, Void attachment) {
+    future.completeExceptionally(e);
+  }
+
+  private void onRead(int n) {
+    if (future.isDone()) {
+      return;
+    }
+    ByteBuffer view = ByteBuffer.wrap(buf);
+    if (n < 0) {
+      scanner.scan(view, 0, len, true, values);
+      future.complete(values.toArray());
+      return;
+    }
+
+    position += n;
+    len += n;
+    int consumed = scanner.scan(view, 0, len, false, values);
+    len -= consumed;
+    if (consumed > 0) {
+      System.arraycopy(buf, consumed, buf, 0, len);
+    } else if (len == buf.length) {
+      // a single line does not fit
+      buf = Arrays.copyOf(buf, buf.length * 2);
+    }
+    readNext();
+  }
+}
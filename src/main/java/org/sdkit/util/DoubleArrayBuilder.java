@@ -0,0 +1,77 @@
+package org.sdkit.util;
+
+import java.util.Arrays;
+
+/**
+ * Growable primitive {@code double} buffer used by the array readers to avoid
+ * boxing every parsed value.
+ *
+ */
+final class DoubleArrayBuilder {
+
+  private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+  private double[] data;
+  private int size;
+
+  DoubleArrayBuilder() {
+    this(1024);
+  }
+
+  DoubleArrayBuilder(int capacity) {
+    data = new double[Math.max(capacity, 16)];
+  }
+
+  void add(double value) {
+    if (size == data.length) {
+      grow(size + 1);
+    }
+    data[size++] = value;
+  }
+
+  void addAll(DoubleArrayBuilder other) {
+    ensureCapacity(size + other.size);
+    System.arraycopy(other.data, 0, data, size, other.size);
+    size += other.size;
+  }
+
+  double get(int index) {
+    if (index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+    return data[index];
+  }
+
+  void copyTo(double[] dest, int destPos) {
+    System.arraycopy(data, 0, dest, destPos, size);
+  }
+
+  int size() {
+    return size;
+  }
+
+  void clear() {
+    size = 0;
+  }
+
+  double[] toArray() {
+    return Arrays.copyOf(data, size);
+  }
+
+  void ensureCapacity(int capacity) {
+    if (capacity < 0) {
+      throw new OutOfMemoryError("Required array size too large"); //$NON-NLS-1$
+    }
+    if (capacity > data.length) {
+      grow(capacity);
+    }
+  }
+
+  private void grow(int minCapacity) {
+    if (minCapacity > MAX_CAPACITY) {
+      throw new OutOfMemoryError("Required array size too large"); //$NON-NLS-1$
+    }
+    long newCapacity = data.length + (data.length >> 1);
+    data = Arrays.copyOf(data, (int) Math.min(Math.max(newCapacity, minCapacity), MAX_CAPACITY));
+  }
+}
@@ -0,0 +1,97 @@
+package org.sdkit.util;
+
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.util.StringBuilderFormattable;
+
+/**
+ * Log4j message previewing the first and last values of a {@code double[]},
+ * in the format of {@link StringUtil#logArray(double[], int, int)}. Nothing
+ * is formatted unless the message is actually logged, so it can be passed to
+ * {@code logger.debug} without guarding it with {@code isDebugEnabled()}.
+ *
+ * <p>
+ * As a {@link StringBuilderFormattable}, the message lets layouts append the
+ * preview straight into their reusable builders, without creating a string.
+ *
+ */
+public final class DoubleArrayMessage implements Message, StringBuilderFormattable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final double[] arr;
+  private final int left;
+  private final int right;
+  private transient String formatted;
+
+  /**
+   * @param arr the values to preview, not copied
+   * @param left the number of leading values shown
+   * @param right the number of trailing values shown
+   */
+  public DoubleArrayMessage(double[] arr, int left, int right) {
+    this.arr = arr;
+    this.left = left;
+    this.right = right;
+  }
+
+  /**
+   * Appends the preview to the builder.
+   */
+  @Override
+  public void formatTo(StringBuilder builder) {
+    if (arr == null) {
+      builder.append("null");
+      return;
+    }
+    if (left + right > arr.length) {
+      builder.append('[');
+      for (int i = 0; i < arr.length; ++i) {
+        if (i > 0) {
+          builder.append(", ");
+        }
+        builder.append(arr[i]);
+      }
+      builder.append(']');
+      return;
+    }
+    builder.append('[');
+    for (int i = 0; i < left; ++i) {
+      builder.append(arr[i]).append(", ");
+    }
+    builder.append("... ");
+    for (int i = right; i > 0; --i) {
+      builder.append(", ").append(arr[arr.length - i]);
+    }
+    builder.append(']');
+  }
+
+  @Override
+  public String getFormattedMessage() {
+    if (formatted == null) {
+      StringBuilder builder = new StringBuilder(arr == null ? 4 : 2 + 24 * (left + right + 1));
+      formatTo(builder);
+      formatted = builder.toString();
+    }
+    return formatted;
+  }
+
+  @Override
+  public String getFormat() {
+    return null;
+  }
+
+  @Override
+  public Object[] getParameters() {
+    return null;
+  }
+
+  @Override
+  public Throwable getThrowable() {
+    return null;
+  }
+
+  @Override
+  public String toString() {
+    return getFormattedMessage();
+  }
+}
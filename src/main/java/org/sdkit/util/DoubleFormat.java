@@ -0,0 +1,275 @@
+package org.sdkit.util;
+
+import java.math.BigInteger;
+
+/**
+ * Formats doubles as the shortest decimal that parses back to the same value,
+ * writing ASCII straight into a caller supplied byte buffer.
+ *
+ * <p>
+ * This is Raffaello Giulietti's Schubfach algorithm, the one behind
+ * {@link Double#toString(double)} since JDK 19, and the output uses the same
+ * layout: plain notation for magnitudes in [10<sup>-3</sup>, 10<sup>7</sup>),
+ * computerized scientific notation otherwise. Older JDKs sometimes emit more
+ * digits than needed, which is why {@link IO} no longer relies on them.
+ *
+ */
+final class DoubleFormat {
+
+  /** Longest output, as in {@code -2.2250738585072014E-308}. */
+  static final int MAX_CHARS = 24;
+
+  private static final int P = 53;
+  private static final int Q_MIN = -1074;
+  private static final long C_MIN = 1L << (P - 1);
+  private static final long C_TINY = 3;
+  private static final int BQ_MASK = 0x7ff;
+  private static final long T_MASK = (1L << (P - 1)) - 1;
+  private static final long MASK_63 = (1L << 63) - 1;
+
+  private static final int K_MIN = -324;
+  private static final int K_MAX = 292;
+
+  /** g = g1 2^63 + g0 approximates 10^-k from above, see {@link #computeG}. */
+  private static final long[] G = computeG();
+
+  private static final long[] POW10 = new long[19];
+
+  static {
+    POW10[0] = 1;
+    for (int i = 1; i < POW10.length; ++i) {
+      POW10[i] = POW10[i - 1] * 10;
+    }
+  }
+
+  private DoubleFormat() {}
+
+  /**
+   * Writes the shortest decimal representation of {@code v} at {@code pos}.
+   * The buffer must have room for {@link #MAX_CHARS} bytes.
+   *
+   * @return the position following the last written byte
+   */
+  static int format(double v, byte[] buf, int pos) {
+    long bits = Double.doubleToRawLongBits(v);
+    long t = bits & T_MASK;
+    int bq = (int) (bits >>> (P - 1)) & BQ_MASK;
+    if (bq == BQ_MASK) {
+      return putAscii(t != 0 ? "NaN" : bits > 0 ? "Infinity" : "-Infinity", buf, pos); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+    }
+    if (bits < 0) {
+      buf[pos++] = '-';
+    }
+    if (bq != 0) {
+      // normal value
+      int mq = -Q_MIN + 1 - bq;
+      long c = C_MIN | t;
+      if (0 < mq & mq < P) {
+        // integers are their own shortest representation
+        long f = c >> mq;
+        if (f << mq == c) {
+          return layout(f, 0, buf, pos);
+        }
+      }
+      return toDecimal(-mq, c, 0, buf, pos);
+    }
+    if (t != 0) {
+      // subnormal value
+      return t < C_TINY
+          ? toDecimal(Q_MIN, 10 * t, -1, buf, pos)
+          : toDecimal(Q_MIN, t, 0, buf, pos);
+    }
+    buf[pos++] = '0';
+    buf[pos++] = '.';
+    buf[pos++] = '0';
+    return pos;
+  }
+
+  private static int toDecimal(int q, long c, int dk, byte[] buf, int pos) {
+    int out = (int) c & 0x1;
+    long cb = c << 2;
+    long cbr = cb + 2;
+    long cbl;
+    int k;
+    if (c != C_MIN | q == Q_MIN) {
+      cbl = cb - 2;
+      k = flog10pow2(q);
+    } else {
+      cbl = cb - 1;
+      k = flog10threeQuartersPow2(q);
+    }
+    int h = q + flog2pow10(-k) + 2;
+
+    long g1 = G[2 * (k - K_MIN)];
+    long g0 = G[2 * (k - K_MIN) + 1];
+
+    long vb = rop(g1, g0, cb << h);
+    long vbl = rop(g1, g0, cbl << h);
+    long vbr = rop(g1, g0, cbr << h);
+
+    long s = vb >> 2;
+    if (s >= 100) {
+      // try one digit less than s
+      long sp10 = s / 10 * 10;
+      long tp10 = sp10 + 10;
+      boolean upin = vbl + out <= sp10 << 2;
+      boolean wpin = (tp10 << 2) + out <= vbr;
+      if (upin != wpin) {
+        return layout(upin ? sp10 : tp10, k, buf, pos);
+      }
+    }
+
+    long t = s + 1;
+    boolean uin = vbl + out <= s << 2;
+    boolean win = (t << 2) + out <= vbr;
+    if (uin != win) {
+      return layout(uin ? s : t, k + dk, buf, pos);
+    }
+    // both candidates are in the rounding interval, pick the closest
+    long cmp = vb - (s + t << 1);
+    return layout(cmp < 0 || cmp == 0 && (s & 0x1) == 0 ? s : t, k + dk, buf, pos);
+  }
+
+  /** Rounds to odd the product of g and cp, scaled down by 2^127. */
+  private static long rop(long g1, long g0, long cp) {
+    long x1 = multiplyHigh(g0, cp);
+    long y0 = g1 * cp;
+    long y1 = multiplyHigh(g1, cp);
+    long z = (y0 >>> 1) + x1;
+    long vbp = y1 + (z >>> 63);
+    return vbp | (z & MASK_63) + MASK_63 >>> 63;
+  }
+
+  /** Writes f 10^e, f &gt; 0, using the {@link Double#toString} layout. */
+  private static int layout(long f, int e, byte[] buf, int pos) {
+    while (f % 10 == 0) {
+      f /= 10;
+      ++e;
+    }
+    int n = digitCount(f);
+    int exp = e + n - 1;
+
+    if (0 <= exp && exp < 7) {
+      int intDigits = exp + 1;
+      if (n <= intDigits) {
+        putDigits(f, n, buf, pos);
+        for (int i = n; i < intDigits; ++i) {
+          buf[pos + i] = '0';
+        }
+        pos += intDigits;
+        buf[pos++] = '.';
+        buf[pos++] = '0';
+        return pos;
+      }
+      int fracDigits = n - intDigits;
+      putDigits(f / POW10[fracDigits], intDigits, buf, pos);
+      buf[pos + intDigits] = '.';
+      putDigits(f % POW10[fracDigits], fracDigits, buf, pos + intDigits + 1);
+      return pos + n + 1;
+    }
+
+    if (-3 <= exp && exp < 0) {
+      buf[pos++] = '0';
+      buf[pos++] = '.';
+      for (int i = exp + 1; i < 0; ++i) {
+        buf[pos++] = '0';
+      }
+      putDigits(f, n, buf, pos);
+      return pos + n;
+    }
+
+    putDigits(f / POW10[n - 1], 1, buf, pos++);
+    buf[pos++] = '.';
+    if (n == 1) {
+      buf[pos++] = '0';
+    } else {
+      putDigits(f % POW10[n - 1], n - 1, buf, pos);
+      pos += n - 1;
+    }
+    buf[pos++] = 'E';
+    if (exp < 0) {
+      buf[pos++] = '-';
+      exp = -exp;
+    }
+    int expDigits = exp < 10 ? 1 : exp < 100 ? 2 : 3;
+    putDigits(exp, expDigits, buf, pos);
+    return pos + expDigits;
+  }
+
+  /** Writes exactly {@code n} digits of {@code v}, zero padded on the left. */
+  private static void putDigits(long v, int n, byte[] buf, int pos) {
+    for (int i = pos + n - 1; i >= pos; --i) {
+      buf[i] = (byte) ('0' + v % 10);
+      v /= 10;
+    }
+  }
+
+  private static int putAscii(String s, byte[] buf, int pos) {
+    for (int i = 0; i < s.length(); ++i) {
+      buf[pos++] = (byte) s.charAt(i);
+    }
+    return pos;
+  }
+
+  private static int digitCount(long f) {
+    int n = 1;
+    while (n < POW10.length && f >= POW10[n]) {
+      ++n;
+    }
+    return n;
+  }
+
+  /** floor(log10(2^e)) for |e| &lt;= 5456721. */
+  private static int flog10pow2(int e) {
+    return (int) (e * 661_971_961_083L >> 41);
+  }
+
+  /** floor(log10(3/4 2^e)) for |e| &lt;= 5456721. */
+  private static int flog10threeQuartersPow2(int e) {
+    return (int) (e * 661_971_961_083L + -274_743_187_321L >> 41);
+  }
+
+  /** floor(log2(10^e)) for |e| &lt;= 1233234. */
+  private static int flog2pow10(int e) {
+    return (int) (e * 913_124_641_741L >> 38);
+  }
+
+  /** Same as {@code Math.multiplyHigh}, which requires Java 9. */
+  private static long multiplyHigh(long x, long y) {
+    long x1 = x >> 32;
+    long x2 = x & 0xFFFFFFFFL;
+    long y1 = y >> 32;
+    long y2 = y & 0xFFFFFFFFL;
+    long z2 = x2 * y2;
+    long t = x1 * y2 + (z2 >>> 32);
+    long z1 = t & 0xFFFFFFFFL;
+    long z0 = t >> 32;
+    z1 += x2 * y1;
+    return x1 * y1 + z0 + (z1 >> 32);
+  }
+
+  /**
+   * For each k in [K_MIN, K_MAX], writes 10^-k = beta 2^r with 2^125 &lt;= beta
+   * &lt; 2^126 and stores g = floor(beta) + 1 as g1 = floor(g 2^-63) followed by
+   * g0 = g mod 2^63.
+   */
+  private static long[] computeG() {
+    long[] g = new long[2 * (K_MAX - K_MIN + 1)];
+    BigInteger mask63 = BigInteger.ONE.shiftLeft(63).subtract(BigInteger.ONE);
+    for (int k = K_MIN; k <= K_MAX; ++k) {
+      BigInteger beta;
+      if (k <= 0) {
+        BigInteger pow = BigInteger.TEN.pow(-k);
+        int r = pow.bitLength() - 126;
+        beta = r >= 0 ? pow.shiftRight(r) : pow.shiftLeft(-r);
+      } else {
+        BigInteger pow = BigInteger.TEN.pow(k);
+        beta = BigInteger.ONE.shiftLeft(125 + pow.bitLength()).divide(pow);
+      }
+      BigInteger value = beta.add(BigInteger.ONE);
+      g[2 * (k - K_MIN)] = value.shiftRight(63).longValue();
+      g[2 * (k - K_MIN) + 1] = value.and(mask63).longValue();
+    }
+    return g;
+  }
+}
@@ -0,0 +1,281 @@
+package org.sdkit.util;
+
+import java.io.Flushable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+
+/**
+ * Dense row-major matrix stored off-heap, either in direct memory or in a
+ * memory-mapped binary array file, so that large matrices do not weigh on
+ * the garbage collector.
+ *
+ * <p>
+ * A single {@link ByteBuffer} cannot exceed 2 GiB, so the storage is split
+ * into segments of whole rows. Use {@link #allocateDirect(long, int)} for
+ * direct memory, and {@link IO#mapMatrix}, {@link IO#createMatrix},
+ * {@link IO#loadMatrix} and {@link IO#saveMatrix} to go to and from files.
+ *
+ */
+public final class DoubleMatrix implements Flushable {
+
+  static final long MAX_SEGMENT_BYTES = 1L << 30;
+
+  private final long rows;
+  private final int cols;
+  private final int rowsPerSegment;
+  private final ByteBuffer[] bytes;
+  private final DoubleBuffer[] segments;
+  private final MappedByteBuffer[] mapped;
+  private final ByteOrder order;
+
+  private DoubleMatrix(long rows, int cols, ByteBuffer[] bytes, ByteOrder order,
+      boolean isMapped) {
+    this.rows = rows;
+    this.cols = cols;
+    this.rowsPerSegment = rowsPerSegment(cols);
+    this.order = order;
+    this.bytes = bytes;
+    this.segments = new DoubleBuffer[bytes.length];
+    this.mapped = isMapped ? new MappedByteBuffer[bytes.length] : null;
+    for (int i = 0; i < bytes.length; ++i) {
+      segments[i] = bytes[i].order(order).asDoubleBuffer();
+      if (isMapped) {
+        mapped[i] = (MappedByteBuffer) bytes[i];
+      }
+    }
+  }
+
+  /**
+   * Allocates a zeroed matrix in direct memory, in native byte order.
+   */
+  public static DoubleMatrix allocateDirect(long rows, int cols) {
+    checkShape(rows, cols);
+    int rowsPerSegment = rowsPerSegment(cols);
+    ByteBuffer[] bytes = new ByteBuffer[segmentCount(rows, rowsPerSegment)];
+    for (int i = 0; i < bytes.length; ++i) {
+      long segmentRows = Math.min(rowsPerSegment, rows - (long) i * rowsPerSegment);
+      bytes[i] = ByteBuffer.allocateDirect((int) (segmentRows * cols * Double.BYTES));
+    }
+    return new DoubleMatrix(rows, cols, bytes, ByteOrder.nativeOrder(), false);
+  }
+
+  /**
+   * Wraps segments mapped as described by {@link #segmentRanges}.
+   */
+  static DoubleMatrix wrap(long rows, int cols, MappedByteBuffer[] bytes, ByteOrder order) {
+    return new DoubleMatrix(rows, cols, bytes, order, true);
+  }
+
+  /**
+   * Returns the byte offset and length of every segment of a matrix of the
+   * given shape, relative to the first value.
+   */
+  static long[][] segmentRanges(long rows, int cols) {
+    checkShape(rows, cols);
+    int rowsPerSegment = rowsPerSegment(cols);
+    long rowBytes = (long) cols * Double.BYTES;
+    long[][] ranges = new long[segmentCount(rows, rowsPerSegment)][];
+    for (int i = 0; i < ranges.length; ++i) {
+      long firstRow = (long) i * rowsPerSegment;
+      ranges[i] = new long[] {firstRow * rowBytes,
+          Math.min(rowsPerSegment, rows - firstRow) * rowBytes};
+    }
+    return ranges;
+  }
+
+  public long getRows() {
+    return rows;
+  }
+
+  public int getCols() {
+    return cols;
+  }
+
+  public ByteOrder getByteOrder() {
+    return order;
+  }
+
+  public boolean isMapped() {
+    return mapped != null;
+  }
+
+  public double get(long row, int col) {
+    checkIndex(row, col);
+    return getUnchecked(row, col);
+  }
+
+  public void set(long row, int col, double value) {
+    checkIndex(row, col);
+    setUnchecked(row, col, value);
+  }
+
+  /**
+   * Same as {@link #get(long, int)} without checking the row and column. An
+   * invalid index returns a wrong value or fails in the underlying buffer.
+   */
+  public double getUnchecked(long row, int col) {
+    return segments[(int) (row / rowsPerSegment)].get((int) (row % rowsPerSegment) * cols + col);
+  }
+
+  /**
+   * Same as {@link #set(long, int, double)} without checking the row and
+   * column. An invalid index overwrites a wrong value or fails in the
+   * underlying buffer.
+   */
+  public void setUnchecked(long row, int col, double value) {
+    segments[(int) (row / rowsPerSegment)].put((int) (row % rowsPerSegment) * cols + col, value);
+  }
+
+  /**
+   * Returns a view of the row sharing the matrix storage.
+   */
+  public DoubleBuffer row(long row) {
+    checkIndex(row, 0);
+    DoubleBuffer view = segments[(int) (row / rowsPerSegment)].duplicate();
+    int start = (int) (row % rowsPerSegment) * cols;
+    view.limit(start + cols);
+    view.position(start);
+    return view.slice();
+  }
+
+  public void getRow(long row, double[] dst) {
+    get(row, 0, dst, 0, cols);
+  }
+
+  public void setRow(long row, double[] src) {
+    put(row, 0, src, 0, cols);
+  }
+
+  /**
+   * Copies {@code length} consecutive row-major values starting at
+   * {@code (row, col)} into {@code dst}. The range may span several rows.
+   */
+  public void get(long row, int col, double[] dst, int offset, int length) {
+    long index = checkRange(row, col, length);
+    while (length > 0) {
+      DoubleBuffer segment = segments[(int) (index / segmentLength())].duplicate();
+      segment.position((int) (index % segmentLength()));
+      int n = Math.min(length, segment.remaining());
+      segment.get(dst, offset, n);
+      index += n;
+      offset += n;
+      length -= n;
+    }
+  }
+
+  /**
+   * Copies {@code length} values of {@code src} into consecutive row-major
+   * positions starting at {@code (row, col)}. The range may span several rows.
+   */
+  public void put(long row, int col, double[] src, int offset, int length) {
+    long index = checkRange(row, col, length);
+    while (length > 0) {
+      DoubleBuffer segment = segments[(int) (index / segmentLength())].duplicate();
+      segment.position((int) (index % segmentLength()));
+      int n = Math.min(length, segment.remaining());
+      segment.put(src, offset, n);
+      index += n;
+      offset += n;
+      length -= n;
+    }
+  }
+
+  /**
+   * Copies all values of {@code src}, which must have the same shape, without
+   * going through the heap.
+   */
+  public void copyFrom(DoubleMatrix src) {
+    if (src.rows != rows || src.cols != cols) {
+      throw new IllegalArgumentException("Shape mismatch: " + src + " into " + this); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+    // same shape, same segments
+    for (int i = 0; i < segments.length; ++i) {
+      segments[i].duplicate().put(src.segments[i].duplicate());
+    }
+  }
+
+  /**
+   * Forces changes of a mapped matrix to the storage device. Does nothing for
+   * direct memory.
+   */
+  @Override
+  public void flush() {
+    if (mapped != null) {
+      for (MappedByteBuffer buffer : mapped) {
+        buffer.force();
+      }
+    }
+  }
+
+  /**
+   * Returns independent byte views of the segments, for writing them out.
+   */
+  ByteBuffer[] segmentBytes() {
+    ByteBuffer[] views = new ByteBuffer[bytes.length];
+    for (int i = 0; i < bytes.length; ++i) {
+      views[i] = bytes[i].duplicate();
+      views[i].clear();
+    }
+    return views;
+  }
+
+  private int segmentLength() {
+    return rowsPerSegment * cols;
+  }
+
+  private void checkIndex(long row, int col) {
+    if (row < 0 || row >= rows || col < 0 || col >= cols) {
+      throw new IndexOutOfBoundsException(
+          "(" + row + ", " + col + ") outside of " + rows + "x" + cols); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+    }
+  }
+
+  private long checkRange(long row, int col, int length) {
+    checkIndex(row, col);
+    long index = row * cols + col;
+    if (length < 0 || index + length > rows * cols) {
+      throw new IndexOutOfBoundsException("Range of " + length + " values from (" + row + ", " //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+          + col + ") outside of " + rows + "x" + cols); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+    return index;
+  }
+
+  /**
+   * Returns true if a matrix of the given shape can be created.
+   */
+  static boolean isValidShape(long rows, int cols) {
+    if (rows < 0 || cols <= 0 || (long) cols * Double.BYTES > MAX_SEGMENT_BYTES) {
+      return false;
+    }
+    int rowsPerSegment = rowsPerSegment(cols);
+    return (rows + rowsPerSegment - 1) / rowsPerSegment <= Integer.MAX_VALUE;
+  }
+
+  private static void checkShape(long rows, int cols) {
+    if (rows < 0 || cols <= 0) {
+      throw new IllegalArgumentException("Invalid shape " + rows + "x" + cols); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+    if ((long) cols * Double.BYTES > MAX_SEGMENT_BYTES) {
+      throw new IllegalArgumentException("Rows of " + cols + " values are too long"); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+  }
+
+  private static int rowsPerSegment(int cols) {
+    return (int) (MAX_SEGMENT_BYTES / ((long) cols * Double.BYTES));
+  }
+
+  private static int segmentCount(long rows, int rowsPerSegment) {
+    long count = (rows + rowsPerSegment - 1) / rowsPerSegment;
+    if (count > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Too many rows: " + rows); //$NON-NLS-1$
+    }
+    return (int) count;
+  }
+
+  @Override
+  public String toString() {
+    return "DoubleMatrix [rows=" + rows + ", cols=" + cols + ", mapped=" + isMapped() + "]"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+  }
+}
@@ -0,0 +1,72 @@
+package org.sdkit.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Splits text files into line-aligned byte ranges so that they can be
+ * memory-mapped and scanned independently.
+ *
+ */
+final class FileChunks {
+
+  /** Largest range a single {@link FileChannel#map} call accepts. */
+  static final long MAX_CHUNK_SIZE = Integer.MAX_VALUE;
+
+  private FileChunks() {}
+
+  /**
+   * Returns {@code n + 1} ascending offsets delimiting {@code n} chunks of
+   * roughly equal size. Every inner offset directly follows a {@code \n} or
+   * {@code \r}, so no line spans two chunks. Chunks may be empty.
+   *
+   * @param channel the file to split
+   * @param size the number of bytes to split, usually the file size
+   * @param minChunkSize the smallest chunk worth scheduling on its own
+   * @param maxChunks the number of chunks to aim for
+   * @return the chunk boundaries
+   * @throws IOException if reading fails or a line is longer than
+   *         {@link #MAX_CHUNK_SIZE}
+   */
+  static long[] split(FileChannel channel, long size, long minChunkSize, int maxChunks)
+      throws IOException {
+    long nbChunks = Math.max(1, Math.min(maxChunks, size / Math.max(1, minChunkSize)));
+    nbChunks = Math.max(nbChunks, (size + MAX_CHUNK_SIZE / 2 - 1) / (MAX_CHUNK_SIZE / 2));
+
+    long[] bounds = new long[(int) nbChunks + 1];
+    ByteBuffer probe = ByteBuffer.allocate(8192);
+    for (int k = 1; k < nbChunks; ++k) {
+      long target = Math.max(size / nbChunks * k, bounds[k - 1]);
+      bounds[k] = nextLineStart(channel, target, size, probe);
+    }
+    bounds[(int) nbChunks] = size;
+
+    for (int k = 1; k < bounds.length; ++k) {
+      if (bounds[k] - bounds[k - 1] > MAX_CHUNK_SIZE) {
+        throw new IOException("Line too long near offset " + bounds[k - 1]); //$NON-NLS-1$
+      }
+    }
+    return bounds;
+  }
+
+  private static long nextLineStart(FileChannel channel, long position, long size,
+      ByteBuffer probe) throws IOException {
+    long pos = position;
+    while (pos < size) {
+      probe.clear();
+      int n = channel.read(probe, pos);
+      if (n <= 0) {
+        break;
+      }
+      for (int i = 0; i < n; ++i) {
+        byte b = probe.get(i);
+        if (b == '\n' || b == '\r') {
+          return Math.min(pos + i + 1, size);
+        }
+      }
+      pos += n;
+    }
+    return size;
+  }
+}
@@ -0,0 +1,151 @@
+package org.sdkit.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Reads gzip compressed array files, inflating and scanning members in
+ * parallel when every member records its size (see {@link GzipMembers}).
+ * Members do not need to end on a line boundary: lines spanning two members
+ * are stitched back together in file order. Other gzip files are read
+ * sequentially.
+ *
+ */
+final class GzipArrayReader {
+
+  private static final byte[] EMPTY = new byte[0];
+
+  private GzipArrayReader() {}
+
+  static double[] read(Path path, String delimiter, int parallelism) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      List<long[]> members = index(channel);
+      if (members == null || members.size() <= 1 || parallelism == 1
+          || !ArrayScanner.isLiteral(delimiter)) {
+        channel.position(0);
+        return IO.readArray(new GZIPInputStream(Channels.newInputStream(channel), 1 << 16),
+            delimiter);
+      }
+
+      ForkJoinPool pool = new ForkJoinPool(parallelism);
+      try {
+        List<ForkJoinTask<Part>> tasks = new ArrayList<>(members.size());
+        for (int i = 0; i < members.size(); ++i) {
+          long[] member = members.get(i);
+          boolean first = i == 0;
+          tasks.add(pool.submit(() -> readPart(channel, member[0], (int) member[1], first,
+              delimiter)));
+        }
+
+        ArrayScanner scanner = new ArrayScanner(delimiter);
+        DoubleArrayBuilder values = new DoubleArrayBuilder();
+        byte[] carry = EMPTY;
+        for (ForkJoinTask<Part> task : tasks) {
+          Part part = IO.join(task);
+          if (!part.terminated) {
+            carry = concat(carry, part.head);
+            continue;
+          }
+          scanAll(scanner, concat(carry, part.head), values);
+          values.addAll(part.values);
+          carry = part.tail;
+        }
+        scanAll(scanner, carry, values);
+        return values.toArray();
+      } finally {
+        pool.shutdownNow();
+      }
+    }
+  }
+
+  /**
+   * Returns the offset and size of every member, or null if one of them does
+   * not record its size.
+   */
+  private static List<long[]> index(FileChannel channel) throws IOException {
+    List<long[]> members = new ArrayList<>();
+    long size = channel.size();
+    long pos = 0;
+    while (pos < size) {
+      long memberSize = GzipMembers.memberSize(channel, pos);
+      if (memberSize < 0) {
+        return null;
+      }
+      if (memberSize < GzipMembers.HEADER_SIZE + GzipMembers.TRAILER_SIZE
+          || memberSize > Integer.MAX_VALUE - 8 || pos + memberSize > size) {
+        throw new ZipException("Corrupt GZIP member size at offset " + pos); //$NON-NLS-1$
+      }
+      members.add(new long[] {pos, memberSize});
+      pos += memberSize;
+    }
+    return members;
+  }
+
+  private static Part readPart(FileChannel channel, long position, int size, boolean first,
+      String delimiter) throws IOException {
+    ByteBuffer member = ByteBuffer.allocate(size);
+    GzipMembers.readFully(channel, member, position);
+    byte[] data = GzipMembers.decompress(member.array());
+    int n = data.length;
+
+    // unless first, the bytes up to the first terminator end the previous line
+    int headEnd = 0;
+    if (!first) {
+      while (headEnd < n && !ArrayScanner.isLineTerminator(data[headEnd])) {
+        ++headEnd;
+      }
+      if (headEnd == n) {
+        return new Part(null, data, EMPTY, false);
+      }
+      ++headEnd;
+    }
+    int tailStart = n;
+    while (tailStart > headEnd && !ArrayScanner.isLineTerminator(data[tailStart - 1])) {
+      --tailStart;
+    }
+
+    DoubleArrayBuilder values = new DoubleArrayBuilder(n / 8);
+    new ArrayScanner(delimiter).scan(ByteBuffer.wrap(data), headEnd, tailStart, true, values);
+    return new Part(values, Arrays.copyOfRange(data, 0, headEnd),
+        Arrays.copyOfRange(data, tailStart, n), true);
+  }
+
+  private static void scanAll(ArrayScanner scanner, byte[] bytes, DoubleArrayBuilder values) {
+    scanner.scan(ByteBuffer.wrap(bytes), 0, bytes.length, true, values);
+  }
+
+  private static byte[] concat(byte[] a, byte[] b) {
+    if (a.length == 0) {
+      return b;
+    }
+    byte[] c = Arrays.copyOf(a, a.length + b.length);
+    System.arraycopy(b, 0, c, a.length, b.length);
+    return c;
+  }
+
+  /** Values of the complete lines of a member plus its partial first and last lines. */
+  private static final class Part {
+    final DoubleArrayBuilder values;
+    final byte[] head;
+    final byte[] tail;
+    final boolean terminated;
+
+    Part(DoubleArrayBuilder values, byte[] head, byte[] tail, boolean terminated) {
+      this.values = values;
+      this.head = head;
+      this.tail = tail;
+      this.terminated = terminated;
+    }
+  }
+}
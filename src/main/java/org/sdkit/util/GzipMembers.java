@@ -0,0 +1,194 @@
+package org.sdkit.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Reads and writes single gzip members (RFC 1952) so that large outputs can be
+ * compressed and decompressed block by block in parallel. A concatenation of
+ * members is itself a valid gzip file.
+ *
+ * <p>
+ * Like BGZF, each member written here carries its own compressed size in an
+ * extra header field (subfield id {@code SD}), which lets readers find every
+ * member without inflating the previous ones.
+ *
+ */
+final class GzipMembers {
+
+  /** Header size of the members written by {@link #compress}. */
+  static final int HEADER_SIZE = 10 + 2 + 8;
+  static final int TRAILER_SIZE = 8;
+
+  private static final int ID1 = 0x1f;
+  private static final int ID2 = 0x8b;
+  private static final int CM_DEFLATE = 8;
+  private static final int FTEXT = 1;
+  private static final int FHCRC = 2;
+  private static final int FEXTRA = 4;
+  private static final int FNAME = 8;
+  private static final int FCOMMENT = 16;
+  private static final int OS_UNKNOWN = 255;
+  private static final byte SI1 = 'S';
+  private static final byte SI2 = 'D';
+
+  private GzipMembers() {}
+
+  /**
+   * Compresses {@code [off, off + len)} of {@code data} into a complete
+   * member.
+   */
+  static byte[] compress(byte[] data, int off, int len, int level) {
+    Deflater deflater = new Deflater(level, true);
+    try {
+      deflater.setInput(data, off, len);
+      deflater.finish();
+      byte[] member = new byte[HEADER_SIZE + len + len / 1000 + 64 + TRAILER_SIZE];
+      int pos = HEADER_SIZE;
+      while (!deflater.finished()) {
+        if (pos == member.length - TRAILER_SIZE) {
+          member = Arrays.copyOf(member, member.length + (member.length >> 1));
+        }
+        pos += deflater.deflate(member, pos, member.length - TRAILER_SIZE - pos);
+      }
+      int size = pos + TRAILER_SIZE;
+
+      CRC32 crc = new CRC32();
+      crc.update(data, off, len);
+
+      ByteBuffer buffer = ByteBuffer.wrap(member).order(ByteOrder.LITTLE_ENDIAN);
+      buffer.put((byte) ID1).put((byte) ID2).put((byte) CM_DEFLATE).put((byte) FEXTRA);
+      buffer.putInt(0); // MTIME
+      buffer.put((byte) 0).put((byte) OS_UNKNOWN);
+      buffer.putShort((short) 8); // XLEN
+      buffer.put(SI1).put(SI2).putShort((short) 4).putInt(size);
+      buffer.position(pos);
+      buffer.putInt((int) crc.getValue());
+      buffer.putInt(len);
+      return member.length == size ? member : Arrays.copyOf(member, size);
+    } finally {
+      deflater.end();
+    }
+  }
+
+  /**
+   * Returns the size of the member starting at {@code position} as recorded in
+   * its {@code SD} extra field, or -1 if the member does not record it.
+   *
+   * @throws ZipException if there is no gzip member at {@code position}
+   */
+  static long memberSize(FileChannel channel, long position) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+    readFully(channel, header, position);
+    if ((header.get(0) & 0xff) != ID1 || (header.get(1) & 0xff) != ID2
+        || header.get(2) != CM_DEFLATE) {
+      throw new ZipException("Not in GZIP format at offset " + position); //$NON-NLS-1$
+    }
+    if ((header.get(3) & FEXTRA) == 0) {
+      return -1;
+    }
+    int xlen = header.getShort(10) & 0xffff;
+    ByteBuffer extra = ByteBuffer.allocate(xlen).order(ByteOrder.LITTLE_ENDIAN);
+    readFully(channel, extra, position + 12);
+    while (extra.remaining() >= 4) {
+      byte si1 = extra.get();
+      byte si2 = extra.get();
+      int len = extra.getShort() & 0xffff;
+      if (si1 == SI1 && si2 == SI2 && len == 4 && extra.remaining() >= 4) {
+        return extra.getInt() & 0xffffffffL;
+      }
+      extra.position(Math.min(extra.limit(), extra.position() + len));
+    }
+    return -1;
+  }
+
+  /**
+   * Inflates one complete member and checks its CRC and size.
+   */
+  static byte[] decompress(byte[] member) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(member).order(ByteOrder.LITTLE_ENDIAN);
+    if (member.length < 18 || (member[0] & 0xff) != ID1 || (member[1] & 0xff) != ID2
+        || member[2] != CM_DEFLATE) {
+      throw new ZipException("Not in GZIP format"); //$NON-NLS-1$
+    }
+    int flags = member[3];
+    int pos = 10;
+    if ((flags & FEXTRA) != 0) {
+      pos += 2 + (buffer.getShort(pos) & 0xffff);
+    }
+    if ((flags & FNAME) != 0) {
+      pos = skipZeroTerminated(member, pos);
+    }
+    if ((flags & FCOMMENT) != 0) {
+      pos = skipZeroTerminated(member, pos);
+    }
+    if ((flags & FHCRC) != 0) {
+      pos += 2;
+    }
+    int trailer = member.length - TRAILER_SIZE;
+    if (pos > trailer || (flags & ~(FTEXT | FHCRC | FEXTRA | FNAME | FCOMMENT)) != 0) {
+      throw new ZipException("Corrupt GZIP header"); //$NON-NLS-1$
+    }
+
+    long expectedCrc = buffer.getInt(trailer) & 0xffffffffL;
+    int size = buffer.getInt(trailer + 4);
+    if (size < 0) {
+      throw new ZipException("GZIP member too large"); //$NON-NLS-1$
+    }
+    byte[] data = new byte[size];
+    Inflater inflater = new Inflater(true);
+    try {
+      inflater.setInput(member, pos, trailer - pos);
+      int n = 0;
+      while (n < size && !inflater.finished()) {
+        int count = inflater.inflate(data, n, size - n);
+        if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        n += count;
+      }
+      if (n != size || !inflater.finished() && inflater.inflate(new byte[1]) > 0) {
+        throw new ZipException("Corrupt GZIP member: size mismatch"); //$NON-NLS-1$
+      }
+    } catch (DataFormatException e) {
+      throw new ZipException(e.getMessage());
+    } finally {
+      inflater.end();
+    }
+
+    CRC32 crc = new CRC32();
+    crc.update(data, 0, size);
+    if (crc.getValue() != expectedCrc) {
+      throw new ZipException("Corrupt GZIP member: CRC mismatch"); //$NON-NLS-1$
+    }
+    return data;
+  }
+
+  static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+      throws IOException {
+    long pos = position;
+    while (buffer.hasRemaining()) {
+      int n = channel.read(buffer, pos);
+      if (n < 0) {
+        throw new ZipException("Unexpected end of GZIP file"); //$NON-NLS-1$
+      }
+      pos += n;
+    }
+    buffer.flip();
+  }
+
+  private static int skipZeroTerminated(byte[] member, int pos) {
+    while (pos < member.length && member[pos] != 0) {
+      ++pos;
+    }
+    return pos + 1;
+  }
+}
@@ -1,68 +1,464 @@
 package org.sdkit.util;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
+import java.io.BufferedReader;
 import java.io.IOException;
-import java.nio.file.FileVisitResult;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.zip.Deflater;
 
 public class IO {
 
+  private static final long PARALLEL_MIN_CHUNK_SIZE = 1 << 20;
+  private static final int PARALLEL_CHUNKS_PER_THREAD = 4;
+  private static final int BINARY_BUFFER_SIZE = 1 << 16;
+
   public static double[] readArray(Path path, String delimiter) throws IOException {
-    ArrayList<Double> arr = new ArrayList<>();
-    try (Stream<String> lines = Files.lines(path)) {
+    try (InputStream in = Files.newInputStream(path)) {
+      return readArray(in, delimiter);
+    }
+  }
 
-      lines.filter(line -> !line.isEmpty() && !line.startsWith("#")).forEach(line -> {
-        arr.addAll(Arrays.stream(line.split(delimiter)).map(val -> Double.parseDouble(val))
-            .collect(Collectors.toList()));
+  static double[] readArray(InputStream in, String delimiter) throws IOException {
+    DoubleArrayBuilder values = new DoubleArrayBuilder();
+    if (ArrayScanner.isLiteral(delimiter)) {
+      new ArrayScanner(delimiter).scan(in, values);
+    } else {
+      BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+      reader.lines().filter(line -> !line.isEmpty() && !line.startsWith("#")).forEach(line -> {
+        for (String val : line.split(delimiter)) {
+          values.add(Double.parseDouble(val));
+        }
       });
     }
-    return arr.stream().mapToDouble(d -> d).toArray();
+    return values.toArray();
   }
 
   public static double[] readArray(Path path) throws IOException {
     return readArray(path, " ");
   }
 
-  public static void saveArray(Path fname, double[][] arr, String delimiter) throws IOException {
-    try (BufferedWriter writer = new BufferedWriter(new FileWriter(fname.toFile()))) {
-      int nbRows = arr.length;
-      int nbCols = arr[0].length;
-      for (int row = 0; row < nbRows; ++row) {
-        for (int col = 0; col < nbCols; ++col) {
-          writer.write(String.valueOf(arr[row][col]) + (col < nbCols - 1 ? delimiter : ""));
+  /**
+   * Reads some columns of a delimited text file. Fields of the other columns
+   * are skipped without being parsed, so the cost mostly depends on the number
+   * of selected columns.
+   *
+   * @param path the file to read
+   * @param delimiter the field delimiter
+   * @param columns the zero-based indices of the columns to read
+   * @return the values of each column, in the order of {@code columns}
+   * @throws IOException if the file cannot be read or a row is missing one of
+   *         the columns
+   */
+  public static double[][] readColumns(Path path, String delimiter, int... columns)
+      throws IOException {
+    int[] selected = IntStream.of(columns).sorted().distinct().toArray();
+    if (selected.length > 0 && selected[0] < 0) {
+      throw new IllegalArgumentException("Negative column " + selected[0]); //$NON-NLS-1$
+    }
+    DoubleArrayBuilder[] values = new DoubleArrayBuilder[selected.length];
+    for (int k = 0; k < values.length; ++k) {
+      values[k] = new DoubleArrayBuilder();
+    }
+
+    try (InputStream in = Files.newInputStream(path)) {
+      int line = 0;
+      if (ArrayScanner.isLiteral(delimiter)) {
+        ArrayScanner scanner = new ArrayScanner(delimiter);
+        LineInput lines = new LineInput(in);
+        while (lines.next()) {
+          ++line;
+          int n = scanner.scanColumns(lines.buffer(), lines.start(), lines.end(), selected, values);
+          if (n >= 0 && n < selected.length) {
+            throw missingColumn(path, line, selected[n]);
+          }
+        }
+      } else {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        for (String str; (str = reader.readLine()) != null;) {
+          ++line;
+          if (str.isEmpty() || str.startsWith("#")) { //$NON-NLS-1$
+            continue;
+          }
+          String[] fields = str.split(delimiter);
+          for (int k = 0; k < selected.length; ++k) {
+            if (selected[k] >= fields.length) {
+              throw missingColumn(path, line, selected[k]);
+            }
+            values[k].add(Double.parseDouble(fields[selected[k]]));
+          }
         }
-        writer.newLine();
       }
     }
+
+    double[][] result = new double[columns.length][];
+    for (int i = 0; i < columns.length; ++i) {
+      result[i] = values[Arrays.binarySearch(selected, columns[i])].toArray();
+    }
+    return result;
   }
 
-  public static void saveArray(Path fname, double[][] arr) throws IOException {
-    saveArray(fname, arr, " ");
+  private static IOException missingColumn(Path path, int line, int column) {
+    return new IOException("Line " + line + " of " + path + " has no column " + column); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
   }
 
-  public static void saveArray(Path fname, String header, double[] arr, int nbCols, String delimiter)
+  /**
+   * Reads the same values as {@link #readArray(Path, String)} without blocking
+   * the calling thread. The file is read with an
+   * {@link java.nio.channels.AsynchronousFileChannel} and parsed on
+   * {@code executor}. Cancelling the future stops reading and closes the file.
+   *
+   * @param path the file to read
+   * @param delimiter the field delimiter
+   * @param executor runs the parsing
+   * @return the future values
+   */
+  public static CompletableFuture<double[]> readArrayAsync(Path path, String delimiter,
+      Executor executor) {
+    if (!ArrayScanner.isLiteral(delimiter)) {
+      return CompletableFuture.supplyAsync(() -> {
+        try {
+          return readArray(path, delimiter);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }, executor);
+    }
+    return AsyncArrayReader.read(path, delimiter, executor);
+  }
+
+  /**
+   * Reads many files concurrently, with at most one file per available
+   * processor in flight.
+   *
+   * @param paths the files to read
+   * @return the values of each file, in the order of {@code paths}
+   * @throws IOException if one of the files cannot be read
+   */
+  public static List<double[]> readArrays(Collection<Path> paths) throws IOException {
+    return readArrays(paths, " ", Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Same as {@link #readArrays(Collection)}.
+   *
+   * @param delimiter the field delimiter
+   * @param parallelism the maximum number of files read at the same time
+   */
+  public static List<double[]> readArrays(Collection<Path> paths, String delimiter,
+      int parallelism) throws IOException {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be positive: " + parallelism); //$NON-NLS-1$
+    }
+    List<Path> files = new ArrayList<>(paths);
+    double[][] results = new double[files.size()][];
+    AtomicInteger next = new AtomicInteger();
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      CompletableFuture<?>[] lanes = new CompletableFuture<?>[Math.min(parallelism, files.size())];
+      for (int i = 0; i < lanes.length; ++i) {
+        lanes[i] = readNextArray(files, results, next, delimiter, pool);
+      }
+      CompletableFuture.allOf(lanes).join();
+    } catch (CompletionException e) {
+      for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+        if (cause instanceof IOException) {
+          throw (IOException) cause;
+        }
+      }
+      throw e;
+    } finally {
+      pool.shutdownNow();
+    }
+    return Arrays.asList(results);
+  }
+
+  private static CompletableFuture<Void> readNextArray(List<Path> files, double[][] results,
+      AtomicInteger next, String delimiter, Executor executor) {
+    int index = next.getAndIncrement();
+    if (index >= files.size()) {
+      return CompletableFuture.completedFuture(null);
+    }
+    return readArrayAsync(files.get(index), delimiter, executor).whenComplete((values, e) -> {
+      if (e != null) {
+        // stop the other lanes
+        next.set(files.size());
+      }
+    }).thenCompose(values -> {
+      results[index] = values;
+      return readNextArray(files, results, next, delimiter, executor);
+    });
+  }
+
+  /**
+   * Reads a delimited text file into a row-major matrix. The number of
+   * columns is the number of values of the first data row, and every other
+   * row must have as many.
+   *
+   * @param path the file to read
+   * @param delimiter the field delimiter
+   * @return the matrix
+   * @throws IOException if the file cannot be read or has ragged rows
+   */
+  public static ArrayMatrix readMatrix(Path path, String delimiter) throws IOException {
+    DoubleArrayBuilder values = new DoubleArrayBuilder();
+    int nbRows = 0;
+    int nbCols = 0;
+    try (ArrayRowCursor cursor = rows(path, delimiter)) {
+      int n;
+      while ((n = cursor.next(values)) >= 0) {
+        if (nbRows == 0) {
+          nbCols = n;
+        } else if (n != nbCols) {
+          throw new IOException("Row " + (nbRows + 1) + " of " + path + " has " + n //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+              + " values instead of " + nbCols); //$NON-NLS-1$
+        }
+        ++nbRows;
+      }
+    }
+    return new ArrayMatrix(values.toArray(), nbRows, nbCols);
+  }
+
+  public static ArrayMatrix readMatrix(Path path) throws IOException {
+    return readMatrix(path, " ");
+  }
+
+  /**
+   * Opens a cursor reading the file one row at a time, for files too large to
+   * be loaded with {@link #readArray(Path, String)}. The caller must close it.
+   *
+   * @param path the file to read
+   * @param delimiter the field delimiter
+   * @return the row cursor
+   * @throws IOException if the file cannot be opened
+   */
+  public static ArrayRowCursor rows(Path path, String delimiter) throws IOException {
+    return new ArrayRowCursor(Files.newInputStream(path), delimiter);
+  }
+
+  public static ArrayRowCursor rows(Path path) throws IOException {
+    return rows(path, " ");
+  }
+
+  /**
+   * Follows a file which is being appended to and passes each of its rows to
+   * {@code rowSink}, starting with the rows already there. Only the newly
+   * appended complete lines are parsed; truncation and rotation of the file
+   * are handled. The rows are delivered on a background thread until the
+   * returned follower is closed.
+   *
+   * @param path the file to follow, which may not exist yet
+   * @param delimiter the field delimiter
+   * @param rowSink receives the values of each row
+   * @return the follower to close
+   * @throws IOException if the directory of the file cannot be watched
+   */
+  public static ArrayFileFollower follow(Path path, String delimiter, Consumer<double[]> rowSink)
       throws IOException {
-    try (BufferedWriter writer = new BufferedWriter(new FileWriter(fname.toFile()))) {
-      if (header != null) {
-        writer.write(header);
-        writer.newLine();
+    return new ArrayFileFollower(path, delimiter, rowSink, ArrayFileFollower.DEFAULT_POLL_MILLIS);
+  }
+
+  /**
+   * Reads the same values as {@link #readArray(Path, String)} but memory-maps
+   * the file and parses line-aligned chunks of it concurrently. The values are
+   * returned in file order. Delimiters which are real regular expressions are
+   * read sequentially.
+   *
+   * @param path the file to read
+   * @param delimiter the field delimiter
+   * @param parallelism the number of worker threads
+   * @return the values of the file
+   * @throws IOException if the file cannot be read
+   */
+  public static double[] readArrayParallel(Path path, String delimiter, int parallelism)
+      throws IOException {
+    return readArrayParallel(path, delimiter, parallelism, PARALLEL_MIN_CHUNK_SIZE);
+  }
+
+  static double[] readArrayParallel(Path path, String delimiter, int parallelism,
+      long minChunkSize) throws IOException {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be positive: " + parallelism); //$NON-NLS-1$
+    }
+    if (!ArrayScanner.isLiteral(delimiter)) {
+      return readArray(path, delimiter);
+    }
+
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long[] bounds = FileChunks.split(channel, channel.size(), minChunkSize,
+          parallelism * PARALLEL_CHUNKS_PER_THREAD);
+      if (bounds.length == 2) {
+        return readChunk(channel, bounds[0], bounds[1], delimiter).toArray();
+      }
+
+      ForkJoinPool pool = new ForkJoinPool(parallelism);
+      try {
+        List<ForkJoinTask<DoubleArrayBuilder>> tasks = new ArrayList<>(bounds.length - 1);
+        for (int k = 0; k < bounds.length - 1; ++k) {
+          long start = bounds[k];
+          long end = bounds[k + 1];
+          tasks.add(pool.submit(() -> readChunk(channel, start, end, delimiter)));
+        }
+
+        DoubleArrayBuilder values = null;
+        for (ForkJoinTask<DoubleArrayBuilder> task : tasks) {
+          DoubleArrayBuilder chunk = join(task);
+          if (values == null) {
+            values = chunk;
+          } else {
+            values.addAll(chunk);
+          }
+        }
+        return values.toArray();
+      } finally {
+        pool.shutdownNow();
+      }
+    }
+  }
+
+  private static DoubleArrayBuilder readChunk(FileChannel channel, long start, long end,
+      String delimiter) throws IOException {
+    int size = (int) (end - start);
+    DoubleArrayBuilder values = new DoubleArrayBuilder(size / 8);
+    if (size > 0) {
+      MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, start, size);
+      new ArrayScanner(delimiter).scan(buffer, 0, size, true, values);
+    }
+    return values;
+  }
+
+  /**
+   * Computes per-column statistics of a delimited text file in a single pass,
+   * without loading it. Line-aligned chunks of the file are summarized
+   * concurrently, one per available processor, and then merged.
+   *
+   * @param path the file to read
+   * @param delimiter the field delimiter
+   * @return the summary of every column
+   * @throws IOException if the file cannot be read
+   */
+  public static ArraySummary summarize(Path path, String delimiter) throws IOException {
+    return summarize(path, delimiter, Runtime.getRuntime().availableProcessors(),
+        PARALLEL_MIN_CHUNK_SIZE);
+  }
+
+  static ArraySummary summarize(Path path, String delimiter, int parallelism, long minChunkSize)
+      throws IOException {
+    if (parallelism == 1 || !ArrayScanner.isLiteral(delimiter)) {
+      ArraySummary summary = new ArraySummary();
+      DoubleArrayBuilder row = new DoubleArrayBuilder();
+      try (ArrayRowCursor cursor = rows(path, delimiter)) {
+        while (cursor.next(row) >= 0) {
+          summary.add(row);
+          row.clear();
+        }
+      }
+      return summary;
+    }
+
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long[] bounds = FileChunks.split(channel, channel.size(), minChunkSize,
+          parallelism * PARALLEL_CHUNKS_PER_THREAD);
+      if (bounds.length == 2) {
+        return summarizeChunk(channel, bounds[0], bounds[1], delimiter);
+      }
+
+      ForkJoinPool pool = new ForkJoinPool(parallelism);
+      try {
+        List<ForkJoinTask<ArraySummary>> tasks = new ArrayList<>(bounds.length - 1);
+        for (int k = 0; k < bounds.length - 1; ++k) {
+          long start = bounds[k];
+          long end = bounds[k + 1];
+          tasks.add(pool.submit(() -> summarizeChunk(channel, start, end, delimiter)));
+        }
+
+        ArraySummary summary = new ArraySummary();
+        for (ForkJoinTask<ArraySummary> task : tasks) {
+          summary.merge(join(task));
+        }
+        return summary;
+      } finally {
+        pool.shutdownNow();
+      }
+    }
+  }
+
+  private static ArraySummary summarizeChunk(FileChannel channel, long start, long end,
+      String delimiter) throws IOException {
+    ArraySummary summary = new ArraySummary();
+    int size = (int) (end - start);
+    if (size == 0) {
+      return summary;
+    }
+    MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, start, size);
+    ArrayScanner scanner = new ArrayScanner(delimiter);
+    DoubleArrayBuilder row = new DoubleArrayBuilder();
+    int lineStart = 0;
+    for (int i = 0; i <= size; ++i) {
+      if (i == size || ArrayScanner.isLineTerminator(buffer.get(i))) {
+        // empty lines, including the one inside "\r\n", yield no values
+        scanner.scanLine(buffer, lineStart, i, row);
+        if (row.size() > 0) {
+          summary.add(row);
+          row.clear();
+        }
+        lineStart = i + 1;
       }
-      for (int i = 0; i < arr.length; ++i) {
-        writer.write(String.valueOf(arr[i]));
-        if ((i + 1) % nbCols != 0) {
-          writer.write(delimiter);
-        } else {
-          writer.newLine();
+    }
+    return summary;
+  }
+
+  static <T> T join(ForkJoinTask<T> task) throws IOException {
+    try {
+      return task.join();
+    } catch (RuntimeException e) {
+      // submit(Callable) wraps checked exceptions, join may wrap them again
+      for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+        if (cause instanceof IOException) {
+          throw (IOException) cause;
         }
       }
+      throw e;
+    }
+  }
+
+  public static void saveArray(Path fname, double[][] arr, String delimiter) throws IOException {
+    try (ArrayTextWriter writer = new ArrayTextWriter(Files.newOutputStream(fname))) {
+      writeArray(writer, arr, delimiter);
+    }
+  }
+
+  public static void saveArray(Path fname, double[][] arr) throws IOException {
+    saveArray(fname, arr, " ");
+  }
+
+  public static void saveArray(Path fname, String header, double[] arr, int nbCols, String delimiter)
+      throws IOException {
+    try (ArrayTextWriter writer = new ArrayTextWriter(Files.newOutputStream(fname))) {
+      writeArray(writer, header, arr, nbCols, delimiter);
     }
   }
 
@@ -70,10 +466,345 @@ public class IO {
     saveArray(fname, header, arr, 2, " ");
   }
 
+  /**
+   * Saves the values as text, two per line separated by a space. Unlike
+   * {@link #saveArrayBinary(Path, double[])}, which writes a single column.
+   */
   public static void saveArray(Path fname, double[] arr) throws IOException {
     saveArray(fname, null, arr);
   }
 
+  /**
+   * Saves the same text as {@link #saveArray(Path, double[][], String)},
+   * gzip compressed. Blocks of about 1 MiB are compressed concurrently and
+   * written as consecutive members of a standard multi-member gzip file.
+   *
+   * @param parallelism the number of compression threads
+   */
+  public static void saveArrayGzip(Path fname, double[][] arr, String delimiter, int parallelism)
+      throws IOException {
+    try (ArrayTextWriter writer = newGzipWriter(fname, parallelism)) {
+      writeArray(writer, arr, delimiter);
+    }
+  }
+
+  /**
+   * Saves the same text as
+   * {@link #saveArray(Path, String, double[], int, String)}, gzip compressed
+   * like {@link #saveArrayGzip(Path, double[][], String, int)}.
+   *
+   * @param parallelism the number of compression threads
+   */
+  public static void saveArrayGzip(Path fname, String header, double[] arr, int nbCols,
+      String delimiter, int parallelism) throws IOException {
+    try (ArrayTextWriter writer = newGzipWriter(fname, parallelism)) {
+      writeArray(writer, header, arr, nbCols, delimiter);
+    }
+  }
+
+  /**
+   * Reads a gzip compressed text file like {@link #readArray(Path, String)}.
+   * Files written by the {@code saveArrayGzip} methods are inflated and parsed
+   * member by member in parallel; any other gzip file is read sequentially.
+   *
+   * @param parallelism the number of worker threads
+   */
+  public static double[] readArrayGzip(Path path, String delimiter, int parallelism)
+      throws IOException {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be positive: " + parallelism); //$NON-NLS-1$
+    }
+    return GzipArrayReader.read(path, delimiter, parallelism);
+  }
+
+  private static ArrayTextWriter newGzipWriter(Path fname, int parallelism) throws IOException {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be positive: " + parallelism); //$NON-NLS-1$
+    }
+    OutputStream out = new ParallelGzipOutputStream(Files.newOutputStream(fname),
+        new ForkJoinPool(parallelism), true, parallelism,
+        ParallelGzipOutputStream.DEFAULT_BLOCK_SIZE, Deflater.DEFAULT_COMPRESSION);
+    return new ArrayTextWriter(out);
+  }
+
+  private static void writeArray(ArrayTextWriter writer, double[][] arr, String delimiter)
+      throws IOException {
+    byte[] delimiterBytes = delimiter.getBytes(StandardCharsets.UTF_8);
+    int nbRows = arr.length;
+    int nbCols = arr[0].length;
+    for (int row = 0; row < nbRows; ++row) {
+      writer.writeRow(arr[row], 0, nbCols, delimiterBytes);
+    }
+  }
+
+  private static void writeArray(ArrayTextWriter writer, String header, double[] arr, int nbCols,
+      String delimiter) throws IOException {
+    if (header != null) {
+      writer.write(header);
+      writer.newLine();
+    }
+    byte[] delimiterBytes = delimiter.getBytes(StandardCharsets.UTF_8);
+    for (int i = 0; i < arr.length; ++i) {
+      writer.write(arr[i]);
+      if ((i + 1) % nbCols != 0) {
+        writer.write(delimiterBytes);
+      } else {
+        writer.newLine();
+      }
+    }
+  }
+
+  /**
+   * Opens a writer appending rows of {@code nbCols} values to the file from a
+   * background thread. The file is created if needed.
+   *
+   * @param path the file to append to
+   * @param nbCols the number of values per row
+   * @param delimiter the field delimiter
+   * @return the writer, which must be closed
+   * @throws IOException if the file cannot be opened
+   */
+  public static ArrayWriter openArrayWriter(Path path, int nbCols, String delimiter)
+      throws IOException {
+    return openArrayWriter(path, nbCols, delimiter, ArrayWriter.DEFAULT_CAPACITY,
+        ArrayWriter.SyncPolicy.ON_FLUSH);
+  }
+
+  /**
+   * Same as {@link #openArrayWriter(Path, int, String)}.
+   *
+   * @param capacity the number of values the ring buffer holds
+   * @param syncPolicy when written data is forced to the storage device
+   */
+  public static ArrayWriter openArrayWriter(Path path, int nbCols, String delimiter, int capacity,
+      ArrayWriter.SyncPolicy syncPolicy) throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    try {
+      return new ArrayWriter(channel, nbCols, delimiter, capacity, syncPolicy);
+    } catch (RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Saves the array as {@code arr.length} rows in the binary format described
+   * by {@link ArrayFileHeader}. All rows must have the same length.
+   *
+   * @param fname the file to write
+   * @param arr the rows to save
+   * @throws IOException if the file cannot be written
+   */
+  public static void saveArrayBinary(Path fname, double[][] arr) throws IOException {
+    int nbRows = arr.length;
+    int nbCols = nbRows == 0 ? 0 : arr[0].length;
+    for (int row = 0; row < nbRows; ++row) {
+      if (arr[row].length != nbCols) {
+        throw new IllegalArgumentException("Row " + row + " has " + arr[row].length //$NON-NLS-1$ //$NON-NLS-2$
+            + " columns instead of " + nbCols); //$NON-NLS-1$
+      }
+    }
+    try (FileChannel channel = openForWrite(fname)) {
+      ByteBuffer buffer = newBinaryBuffer();
+      new ArrayFileHeader(nbRows, nbCols).write(buffer);
+      for (double[] values : arr) {
+        putBinary(channel, buffer, values, 0, values.length);
+      }
+      drain(channel, buffer);
+    }
+  }
+
+  /**
+   * Saves the flat row-major array in the binary format described by
+   * {@link ArrayFileHeader}.
+   *
+   * @param fname the file to write
+   * @param arr the values to save
+   * @param nbCols the number of columns, must divide {@code arr.length}
+   * @throws IOException if the file cannot be written
+   */
+  public static void saveArrayBinary(Path fname, double[] arr, int nbCols) throws IOException {
+    if (nbCols <= 0 || arr.length % nbCols != 0) {
+      throw new IllegalArgumentException(
+          "Cannot shape " + arr.length + " values into " + nbCols + " columns"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+    }
+    try (FileChannel channel = openForWrite(fname)) {
+      ByteBuffer buffer = newBinaryBuffer();
+      new ArrayFileHeader(arr.length / nbCols, nbCols).write(buffer);
+      putBinary(channel, buffer, arr, 0, arr.length);
+      drain(channel, buffer);
+    }
+  }
+
+  /**
+   * Saves the values as a single column, so that any length can be written.
+   * Unlike {@link #saveArray(Path, double[])}, which writes two per line.
+   */
+  public static void saveArrayBinary(Path fname, double[] arr) throws IOException {
+    saveArrayBinary(fname, arr, 1);
+  }
+
+  public static ArrayFileHeader readArrayBinaryHeader(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return readBinaryHeader(channel);
+    }
+  }
+
+  /**
+   * Memory-maps the values of a binary array file without copying them. The
+   * returned buffer is read-only, uses the byte order of the file and stays
+   * valid after this method returns.
+   *
+   * @param path the file written by one of the {@code saveArrayBinary} methods
+   * @return a row-major view of the values
+   * @throws IOException if the file is not a valid binary array file
+   */
+  public static DoubleBuffer mapArrayBinary(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ArrayFileHeader header = readBinaryHeader(channel);
+      long size = header.getLength() * Double.BYTES;
+      if (size > FileChunks.MAX_CHUNK_SIZE) {
+        throw new IOException("Binary array too large to map: " + header); //$NON-NLS-1$
+      }
+      return channel.map(MapMode.READ_ONLY, ArrayFileHeader.SIZE, size)
+          .order(header.getByteOrder()).asDoubleBuffer();
+    }
+  }
+
+  public static double[] readArrayBinary(Path path) throws IOException {
+    DoubleBuffer values = mapArrayBinary(path);
+    double[] arr = new double[values.remaining()];
+    values.get(arr);
+    return arr;
+  }
+
+  /**
+   * Memory-maps a binary array file as an off-heap matrix.
+   *
+   * @param path the file written by {@link #saveMatrix} or one of the
+   *        {@code saveArrayBinary} methods
+   * @param writable true to map the file read-write, changes then go to the
+   *        file
+   * @return the mapped matrix
+   * @throws IOException if the file is not a valid binary array file
+   */
+  public static DoubleMatrix mapMatrix(Path path, boolean writable) throws IOException {
+    try (FileChannel channel = writable
+        ? FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)
+        : FileChannel.open(path, StandardOpenOption.READ)) {
+      ArrayFileHeader header = readBinaryHeader(channel);
+      return mapMatrix(channel, header, writable ? MapMode.READ_WRITE : MapMode.READ_ONLY);
+    }
+  }
+
+  /**
+   * Creates a binary array file of the given shape, filled with zeros, and
+   * maps it read-write.
+   */
+  public static DoubleMatrix createMatrix(Path path, long rows, int cols) throws IOException {
+    if (!DoubleMatrix.isValidShape(rows, cols)) {
+      throw new IllegalArgumentException("Invalid shape " + rows + "x" + cols); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      ArrayFileHeader header = new ArrayFileHeader(rows, cols);
+      ByteBuffer buffer = ByteBuffer.allocate(ArrayFileHeader.SIZE);
+      header.write(buffer);
+      drain(channel, buffer);
+      // mapping the values grows the file
+      return mapMatrix(channel, header, MapMode.READ_WRITE);
+    }
+  }
+
+  /**
+   * Loads a binary array file into direct memory.
+   */
+  public static DoubleMatrix loadMatrix(Path path) throws IOException {
+    DoubleMatrix mapped = mapMatrix(path, false);
+    DoubleMatrix matrix = DoubleMatrix.allocateDirect(mapped.getRows(), mapped.getCols());
+    matrix.copyFrom(mapped);
+    return matrix;
+  }
+
+  /**
+   * Saves the matrix in the binary array format, writing its off-heap storage
+   * directly. The values keep the byte order of the matrix.
+   */
+  public static void saveMatrix(Path fname, DoubleMatrix matrix) throws IOException {
+    try (FileChannel channel = openForWrite(fname)) {
+      ByteBuffer header = ByteBuffer.allocate(ArrayFileHeader.SIZE);
+      new ArrayFileHeader(matrix.getRows(), matrix.getCols(), matrix.getByteOrder()).write(header);
+      drain(channel, header);
+      for (ByteBuffer segment : matrix.segmentBytes()) {
+        while (segment.hasRemaining()) {
+          channel.write(segment);
+        }
+      }
+    }
+  }
+
+  private static DoubleMatrix mapMatrix(FileChannel channel, ArrayFileHeader header, MapMode mode)
+      throws IOException {
+    if (header.getCols() > Integer.MAX_VALUE
+        || !DoubleMatrix.isValidShape(header.getRows(), (int) header.getCols())) {
+      throw new IOException("Invalid shape for a DoubleMatrix: " + header); //$NON-NLS-1$
+    }
+    int cols = (int) header.getCols();
+    long[][] ranges = DoubleMatrix.segmentRanges(header.getRows(), cols);
+    MappedByteBuffer[] segments = new MappedByteBuffer[ranges.length];
+    for (int i = 0; i < ranges.length; ++i) {
+      segments[i] = channel.map(mode, ArrayFileHeader.SIZE + ranges[i][0], ranges[i][1]);
+    }
+    return DoubleMatrix.wrap(header.getRows(), cols, segments, header.getByteOrder());
+  }
+
+  private static ArrayFileHeader readBinaryHeader(FileChannel channel) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(ArrayFileHeader.SIZE);
+    while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) > 0) {
+      // fill header
+    }
+    buffer.flip();
+    ArrayFileHeader header = ArrayFileHeader.read(buffer);
+    if (channel.size() < ArrayFileHeader.SIZE + header.getLength() * Double.BYTES) {
+      throw new IOException("Binary array file truncated: " + header); //$NON-NLS-1$
+    }
+    return header;
+  }
+
+  private static FileChannel openForWrite(Path fname) throws IOException {
+    return FileChannel.open(fname, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING);
+  }
+
+  private static ByteBuffer newBinaryBuffer() {
+    return ByteBuffer.allocateDirect(BINARY_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  private static void putBinary(FileChannel channel, ByteBuffer buffer, double[] values, int offset,
+      int length) throws IOException {
+    int off = offset;
+    int remaining = length;
+    while (remaining > 0) {
+      if (buffer.remaining() < Double.BYTES) {
+        drain(channel, buffer);
+      }
+      int n = Math.min(remaining, buffer.remaining() / Double.BYTES);
+      buffer.asDoubleBuffer().put(values, off, n);
+      buffer.position(buffer.position() + n * Double.BYTES);
+      off += n;
+      remaining -= n;
+    }
+  }
+
+  private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
   public static Path createTempDirectory(String prefix, boolean deleteOnExit) throws IOException {
     Path path = Files.createTempDirectory(prefix);
     if (deleteOnExit) {
@@ -82,35 +813,12 @@ public class IO {
     return path;
   }
 
+  /**
+   * Registers the directory tree to be deleted when the JVM exits. All the
+   * registered trees are deleted in parallel by a single shutdown hook, see
+   * {@link TempDirectory}.
+   */
   public static void recursiveDeleteOnShutdownHook(final Path path) {
-    Runtime.getRuntime().addShutdownHook(new Thread(
-        new Runnable() {
-          @Override
-          public void run() {
-            try {
-              Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
-                @Override
-                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
-                    throws IOException {
-                  Files.delete(file);
-                  return FileVisitResult.CONTINUE;
-                }
-
-                @Override
-                public FileVisitResult postVisitDirectory(Path dir, IOException e)
-                    throws IOException {
-                  if (e == null) {
-                    Files.delete(dir);
-                    return FileVisitResult.CONTINUE;
-                  }
-                  // directory iteration failed
-                  throw e;
-                }
-              });
-            } catch (IOException e) {
-              throw new RuntimeException("Failed to delete " + path, e);
-            }
-          }
-        }));
+    TempDirectory.deleteOnExit(path);
   }
 }
@@ -0,0 +1,348 @@
+package org.sdkit.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.function.Consumer;
+
+/**
+ * Single-pass lexical scanner over JSON text, used by {@link JsonUtil} to find
+ * keys and values without building a tree. Skipped values are only
+ * tokenized: strings are followed to their closing quote and containers to
+ * their closing bracket, nothing is decoded or stored.
+ *
+ * <p>
+ * The scanner is lenient about what it skips and only checks the structure
+ * it walks through; invalid text may yield an
+ * {@link IllegalArgumentException} or an arbitrary result.
+ *
+ */
+final class JsonLexer {
+
+  private static final int NONE = -2;
+  private static final int EOF = -1;
+
+  private final CharSequence text;
+  private final Reader reader;
+  private final char[] buf;
+  private int pos;
+  private int limit;
+  private int peeked = NONE;
+
+  JsonLexer(CharSequence text) {
+    this.text = text;
+    this.reader = null;
+    this.buf = null;
+  }
+
+  JsonLexer(Reader reader) {
+    this.text = null;
+    this.reader = reader;
+    this.buf = new char[1024];
+  }
+
+  /**
+   * Moves to the value at the dot-separated path, which is a sequence of
+   * object keys and array indices, the empty path being the whole text.
+   *
+   * @return false if there is no such value
+   */
+  boolean navigate(String path) throws IOException {
+    int from = 0;
+    while (from < path.length()) {
+      int to = path.indexOf('.', from);
+      if (to < 0) {
+        to = path.length();
+      }
+      int c = peekNonWhitespace();
+      if (c == '{') {
+        if (!findMember(path, from, to)) {
+          return false;
+        }
+      } else if (c == '[' && isIndex(path, from, to)) {
+        if (!findElement(Integer.parseInt(path.substring(from, to)))) {
+          return false;
+        }
+      } else {
+        return false;
+      }
+      from = to + 1;
+    }
+    return true;
+  }
+
+  /**
+   * Passes every key of the object at the current position to {@code action}
+   * and consumes the object. The key is only valid during the call.
+   *
+   * @return false, consuming nothing, if the value is not an object
+   */
+  boolean forEachKey(Consumer<CharSequence> action) throws IOException {
+    if (peekNonWhitespace() != '{') {
+      return false;
+    }
+    read();
+    StringBuilder key = new StringBuilder();
+    while (nextMember()) {
+      key.setLength(0);
+      readString(key);
+      expectColon();
+      action.accept(key);
+      skipValue();
+    }
+    return true;
+  }
+
+  /**
+   * Consumes the next value, whatever it is.
+   */
+  void skipValue() throws IOException {
+    int c = peekNonWhitespace();
+    if (c == '"') {
+      read();
+      skipString();
+    } else if (c == '{' || c == '[') {
+      String container = c == '{' ? "object" : "array"; //$NON-NLS-1$ //$NON-NLS-2$
+      int depth = 0;
+      do {
+        c = read();
+        if (c == '"') {
+          skipString();
+        } else if (c == '{' || c == '[') {
+          ++depth;
+        } else if (c == '}' || c == ']') {
+          --depth;
+        } else if (c == EOF) {
+          throw error("Unterminated " + container); //$NON-NLS-1$
+        }
+      } while (depth > 0);
+    } else if (c == EOF || c == ',' || c == '}' || c == ']' || c == ':') {
+      throw error("Expected a value"); //$NON-NLS-1$
+    } else {
+      // number, true, false or null
+      while ((c = peek()) != EOF && !isWhitespace(c) && c != ',' && c != '}' && c != ']') {
+        read();
+      }
+    }
+  }
+
+  /**
+   * Consumes the opening brace and the members up to the one named
+   * {@code path[from, to)}, stopping after its colon.
+   */
+  private boolean findMember(String path, int from, int to) throws IOException {
+    read();
+    while (nextMember()) {
+      boolean found = stringEquals(path, from, to);
+      expectColon();
+      if (found) {
+        return true;
+      }
+      skipValue();
+    }
+    return false;
+  }
+
+  /**
+   * Consumes the opening bracket and the elements before {@code index}.
+   */
+  private boolean findElement(int index) throws IOException {
+    read();
+    for (int i = 0;; ++i) {
+      int c = peekNonWhitespace();
+      if (c == ']') {
+        read();
+        return false;
+      }
+      if (i > 0) {
+        if (c != ',') {
+          throw error("Expected ',' or ']'"); //$NON-NLS-1$
+        }
+        read();
+      }
+      if (i == index) {
+        return true;
+      }
+      skipValue();
+    }
+  }
+
+  /**
+   * Moves past the separator to the opening quote of the next key of an
+   * object, or past its closing brace.
+   *
+   * @return false at the end of the object
+   */
+  private boolean nextMember() throws IOException {
+    int c = peekNonWhitespace();
+    if (c == ',') {
+      read();
+      c = peekNonWhitespace();
+    }
+    if (c == '}') {
+      read();
+      return false;
+    }
+    if (c != '"') {
+      throw error("Expected a key"); //$NON-NLS-1$
+    }
+    read();
+    return true;
+  }
+
+  private void expectColon() throws IOException {
+    if (peekNonWhitespace() != ':') {
+      throw error("Expected ':'"); //$NON-NLS-1$
+    }
+    read();
+  }
+
+  /**
+   * Consumes the rest of a string whose opening quote was read.
+   */
+  private void skipString() throws IOException {
+    int c;
+    while ((c = read()) != '"') {
+      if (c == '\\') {
+        read();
+      } else if (c == EOF) {
+        throw error("Unterminated string"); //$NON-NLS-1$
+      }
+    }
+  }
+
+  /**
+   * Decodes the rest of a string whose opening quote was read.
+   */
+  void readString(StringBuilder out) throws IOException {
+    int c;
+    while ((c = readStringChar()) >= 0) {
+      out.append((char) c);
+    }
+  }
+
+  /**
+   * Consumes the rest of a string whose opening quote was read and compares
+   * it with {@code expected[from, to)} without storing it.
+   */
+  private boolean stringEquals(CharSequence expected, int from, int to) throws IOException {
+    boolean equal = true;
+    int i = from;
+    int c;
+    while ((c = readStringChar()) >= 0) {
+      equal = equal && i < to && expected.charAt(i++) == c;
+    }
+    return equal && i == to;
+  }
+
+  /**
+   * Returns the next decoded character of a string, or -1 after its closing
+   * quote.
+   */
+  private int readStringChar() throws IOException {
+    int c = read();
+    if (c == '"') {
+      return -1;
+    }
+    if (c == EOF) {
+      throw error("Unterminated string"); //$NON-NLS-1$
+    }
+    if (c != '\\') {
+      return c;
+    }
+    c = read();
+    switch (c) {
+      case 'b':
+        return '\b';
+      case 'f':
+        return '\f';
+      case 'n':
+        return '\n';
+      case 'r':
+        return '\r';
+      case 't':
+        return '\t';
+      case 'u':
+        int value = 0;
+        for (int i = 0; i < 4; ++i) {
+          int digit = Character.digit(read(), 16);
+          if (digit < 0) {
+            throw error("Invalid unicode escape"); //$NON-NLS-1$
+          }
+          value = value << 4 | digit;
+        }
+        return value;
+      case EOF:
+        throw error("Unterminated string"); //$NON-NLS-1$
+      default:
+        // '"', '\\', '/'
+        return c;
+    }
+  }
+
+  /**
+   * Returns the offset of the next character of an in-memory text.
+   */
+  int position() {
+    // peeking EOF consumes nothing
+    return peeked == NONE || peeked == EOF ? pos : pos - 1;
+  }
+
+  int peekNonWhitespace() throws IOException {
+    int c;
+    while (isWhitespace(c = peek())) {
+      read();
+    }
+    return c;
+  }
+
+  int peek() throws IOException {
+    if (peeked == NONE) {
+      peeked = readChar();
+    }
+    return peeked;
+  }
+
+  int read() throws IOException {
+    int c = peek();
+    peeked = NONE;
+    return c;
+  }
+
+  private int readChar() throws IOException {
+    if (text != null) {
+      return pos < text.length() ? text.charAt(pos++) : EOF;
+    }
+    if (pos == limit) {
+      int n;
+      do {
+        n = reader.read(buf, 0, buf.length);
+      } while (n == 0);
+      if (n < 0) {
+        return EOF;
+      }
+      pos = 0;
+      limit = n;
+    }
+    return buf[pos++];
+  }
+
+  private static boolean isWhitespace(int c) {
+    return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+  }
+
+  private static boolean isIndex(String path, int from, int to) {
+    if (from == to || to - from > 9) {
+      return false;
+    }
+    for (int i = from; i < to; ++i) {
+      if (path.charAt(i) < '0' || path.charAt(i) > '9') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private IllegalArgumentException error(String message) {
+    return new IllegalArgumentException(message + " in JSON text"); //$NON-NLS-1$
+  }
+}
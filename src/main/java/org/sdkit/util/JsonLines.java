@@ -0,0 +1,248 @@
+package org.sdkit.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+
+/**
+ * Reads and writes JSON Lines (NDJSON) files: one JSON value per line.
+ *
+ * <p>
+ * Readers memory-map the file, split it into line-aligned chunks and
+ * deserialize the chunks concurrently on a fork-join pool with one shared,
+ * thread-safe {@link Gson}. Blank lines are skipped.
+ *
+ */
+public final class JsonLines {
+
+  private static final long MIN_CHUNK_SIZE = 1 << 20;
+  private static final int CHUNKS_PER_THREAD = 4;
+
+  private JsonLines() {}
+
+  /**
+   * Reads every line of the file, in file order.
+   *
+   * @param path the file to read
+   * @param type the type of the values
+   * @return the values
+   * @throws IOException if the file cannot be read
+   * @throws JsonSyntaxException if a line is not a valid value
+   */
+  public static <T> List<T> read(Path path, Type type) throws IOException {
+    return read(path, type, JsonUtil.GSON, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Same as {@link #read(Path, Type)}.
+   *
+   * @param gson the configuration used by all the threads
+   * @param parallelism the number of worker threads
+   */
+  public static <T> List<T> read(Path path, Type type, Gson gson, int parallelism)
+      throws IOException {
+    return read(path, type, gson, parallelism, MIN_CHUNK_SIZE);
+  }
+
+  static <T> List<T> read(Path path, Type type, Gson gson, int parallelism, long minChunkSize)
+      throws IOException {
+    List<List<T>> chunks = new ArrayList<>();
+    run(path, parallelism, minChunkSize, (channel, start, end) -> {
+      List<T> values = new ArrayList<>();
+      JsonLines.<T>readChunk(channel, start, end, type, gson, values::add);
+      return values;
+    }, chunks::add);
+    int size = 0;
+    for (List<T> chunk : chunks) {
+      size += chunk.size();
+    }
+    List<T> values = new ArrayList<>(size);
+    for (List<T> chunk : chunks) {
+      values.addAll(chunk);
+    }
+    return values;
+  }
+
+  /**
+   * Passes every value of the file to {@code action} as soon as it is read,
+   * concurrently and in no particular order. This avoids holding all the
+   * values and waiting for earlier chunks when the order does not matter.
+   *
+   * @param path the file to read
+   * @param type the type of the values
+   * @param gson the configuration used by all the threads
+   * @param parallelism the number of worker threads
+   * @param action receives the values, from several threads at once
+   * @throws IOException if the file cannot be read
+   * @throws JsonSyntaxException if a line is not a valid value
+   */
+  public static <T> void forEachUnordered(Path path, Type type, Gson gson, int parallelism,
+      Consumer<? super T> action) throws IOException {
+    forEachUnordered(path, type, gson, parallelism, MIN_CHUNK_SIZE, action);
+  }
+
+  static <T> void forEachUnordered(Path path, Type type, Gson gson, int parallelism,
+      long minChunkSize, Consumer<? super T> action) throws IOException {
+    run(path, parallelism, minChunkSize, (channel, start, end) -> {
+      readChunk(channel, start, end, type, gson, action);
+      return null;
+    }, result -> {});
+  }
+
+  /**
+   * Opens a writer replacing the file.
+   *
+   * @param path the file to write
+   * @param gson the configuration used to serialize the values
+   * @return the writer to close
+   * @throws IOException if the file cannot be opened
+   */
+  public static Writer newWriter(Path path, Gson gson) throws IOException {
+    return new Writer(FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), gson, Writer.BATCH_SIZE);
+  }
+
+  public static Writer newWriter(Path path) throws IOException {
+    return newWriter(path, JsonUtil.GSON);
+  }
+
+  private interface ChunkReader<R> {
+    R read(FileChannel channel, long start, long end) throws IOException;
+  }
+
+  /**
+   * Runs {@code reader} on every chunk of the file and passes the results to
+   * {@code results} in file order.
+   */
+  private static <R> void run(Path path, int parallelism, long minChunkSize,
+      ChunkReader<R> reader, Consumer<R> results) throws IOException {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be positive: " + parallelism); //$NON-NLS-1$
+    }
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long[] bounds = FileChunks.split(channel, channel.size(), minChunkSize,
+          parallelism * CHUNKS_PER_THREAD);
+      if (bounds.length == 2 || parallelism == 1) {
+        for (int k = 0; k < bounds.length - 1; ++k) {
+          results.accept(reader.read(channel, bounds[k], bounds[k + 1]));
+        }
+        return;
+      }
+
+      ForkJoinPool pool = new ForkJoinPool(parallelism);
+      try {
+        List<ForkJoinTask<R>> tasks = new ArrayList<>(bounds.length - 1);
+        for (int k = 0; k < bounds.length - 1; ++k) {
+          long start = bounds[k];
+          long end = bounds[k + 1];
+          tasks.add(pool.submit(() -> reader.read(channel, start, end)));
+        }
+        for (ForkJoinTask<R> task : tasks) {
+          results.accept(IO.join(task));
+        }
+      } finally {
+        pool.shutdownNow();
+      }
+    }
+  }
+
+  private static <T> void readChunk(FileChannel channel, long start, long end, Type type,
+      Gson gson, Consumer<? super T> action) throws IOException {
+    int size = (int) (end - start);
+    if (size == 0) {
+      return;
+    }
+    MappedByteBuffer bytes = channel.map(MapMode.READ_ONLY, start, size);
+    CharBuffer text = UTF_8.newDecoder().decode(bytes);
+    LineSpans lines = StringUtil.lineSpans(text);
+    while (lines.next()) {
+      CharSequence line = lines.line();
+      if (!StringUtil.isBlank(line)) {
+        T value = gson.fromJson(line.toString(), type);
+        action.accept(value);
+      }
+    }
+  }
+
+  /**
+   * Writes one JSON value per line. Lines are serialized into a large batch
+   * which is encoded and written at once, so the file sees few big writes.
+   * The Gson configuration must not pretty-print. Not thread-safe.
+   */
+  public static final class Writer implements Closeable, Flushable {
+
+    static final int BATCH_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final Gson gson;
+    private final int batchSize;
+    private final StringBuilder batch;
+    private final CharsetEncoder encoder = UTF_8.newEncoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    Writer(FileChannel channel, Gson gson, int batchSize) {
+      this.channel = channel;
+      this.gson = gson;
+      this.batchSize = batchSize;
+      this.batch = new StringBuilder(batchSize + batchSize / 4);
+    }
+
+    /**
+     * Appends a value on its own line.
+     */
+    public void write(Object value) throws IOException {
+      gson.toJson(value, batch);
+      batch.append('\n');
+      if (batch.length() >= batchSize) {
+        writeBatch();
+      }
+    }
+
+    /**
+     * Writes the pending lines to the file.
+     */
+    @Override
+    public void flush() throws IOException {
+      writeBatch();
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        writeBatch();
+      } finally {
+        channel.close();
+      }
+    }
+
+    private void writeBatch() throws IOException {
+      if (batch.length() == 0) {
+        return;
+      }
+      ByteBuffer bytes = encoder.encode(CharBuffer.wrap(batch));
+      while (bytes.hasRemaining()) {
+        channel.write(bytes);
+      }
+      batch.setLength(0);
+    }
+  }
+}
@@ -1,17 +1,240 @@
 package org.sdkit.util;
 
-import static java.util.stream.Collectors.toList;
-import java.util.Arrays;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 
 public class JsonUtil {
 
+  static final Gson GSON = new Gson();
+
   private JsonUtil() {}
 
+  /**
+   * Returns the keys of the top-level object, in document order. Nested
+   * objects, arrays and strings are skipped whatever they contain.
+   *
+   * @param json JSON text
+   * @return the keys, empty if the text is not an object
+   * @throws IllegalArgumentException if the text is malformed
+   */
+  public static List<String> keys(CharSequence json) {
+    return keys(json, ""); //$NON-NLS-1$
+  }
+
+  /**
+   * Same as {@link #keys(CharSequence)}, kept for binary compatibility.
+   */
   public static List<String> keys(String json) {
-    return Arrays.stream(json.split(","))
-        .map(p -> p.replaceAll("[{} \"]", ""))
-        .map(p -> p.split(":")[0])
-        .collect(toList());
+    return keys((CharSequence) json);
+  }
+
+  /**
+   * Returns the keys of the object at a dot-separated path of keys and array
+   * indices, such as {@code "meta.devices.0"}.
+   *
+   * @param json JSON text
+   * @param path the path of the object, empty for the top-level object
+   * @return the keys, empty if there is no object at this path
+   * @throws IllegalArgumentException if the text is malformed
+   */
+  public static List<String> keys(CharSequence json, String path) {
+    List<String> keys = new ArrayList<>();
+    forEachKey(json, path, key -> keys.add(key.toString()));
+    return keys;
+  }
+
+  /**
+   * Same as {@link #keys(CharSequence, String)}, reading the text from
+   * {@code reader} only as far as needed.
+   */
+  public static List<String> keys(Reader reader, String path) throws IOException {
+    List<String> keys = new ArrayList<>();
+    JsonLexer lexer = new JsonLexer(reader);
+    if (lexer.navigate(path)) {
+      lexer.forEachKey(key -> keys.add(key.toString()));
+    }
+    return keys;
+  }
+
+  /**
+   * Passes the keys of the object at {@code path} to {@code action} without
+   * allocating a String per key. The key is a reused buffer which is only
+   * valid during the call.
+   *
+   * @param json JSON text
+   * @param path the path of the object, see {@link #keys(CharSequence, String)}
+   * @param action receives each key
+   * @throws IllegalArgumentException if the text is malformed
+   */
+  public static void forEachKey(CharSequence json, String path, Consumer<CharSequence> action) {
+    JsonLexer lexer = new JsonLexer(json);
+    try {
+      if (lexer.navigate(path)) {
+        lexer.forEachKey(action);
+      }
+    } catch (IOException e) {
+      // in-memory text
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Returns the value at a dot-separated path of keys and array indices, such
+   * as {@code "meta.device.id"}. The text is scanned only up to the end of the
+   * value, and the values before it are skipped without being decoded.
+   *
+   * @param json JSON text
+   * @param path the path of the value
+   * @return the decoded string for a string value, the JSON text of any other
+   *         value, or null when there is no value at this path or it is
+   *         {@code null}
+   * @throws IllegalArgumentException if the text is malformed
+   */
+  public static String extract(CharSequence json, String path) {
+    JsonLexer lexer = new JsonLexer(json);
+    try {
+      if (!lexer.navigate(path)) {
+        return null;
+      }
+      if (lexer.peekNonWhitespace() == '"') {
+        lexer.read();
+        StringBuilder value = new StringBuilder();
+        lexer.readString(value);
+        return value.toString();
+      }
+      int start = lexer.position();
+      lexer.skipValue();
+      String value = json.subSequence(start, lexer.position()).toString();
+      return value.equals("null") ? null : value; //$NON-NLS-1$
+    } catch (IOException e) {
+      // in-memory text
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Returns a lazy stream of the elements of a JSON array, each read with
+   * Gson only when the stream pulls it. Only one element is in memory at a
+   * time, and the rest of the text is not read if the stream stops early.
+   * Closing the stream closes the reader.
+   *
+   * @param reader the text of the array
+   * @param type the type of the elements
+   * @return the elements
+   */
+  public static <T> Stream<T> streamArray(Reader reader, Class<T> type) {
+    return streamArray(reader, type, GSON);
+  }
+
+  /**
+   * Same as {@link #streamArray(Reader, Class)} with the given Gson
+   * configuration.
+   */
+  public static <T> Stream<T> streamArray(Reader reader, Type type, Gson gson) {
+    JsonReader json = new JsonReader(reader);
+    Iterator<T> elements = new Iterator<T>() {
+      private boolean started;
+      private boolean done;
+
+      @Override
+      public boolean hasNext() {
+        if (done) {
+          return false;
+        }
+        try {
+          if (!started) {
+            json.beginArray();
+            started = true;
+          }
+          if (json.hasNext()) {
+            return true;
+          }
+          json.endArray();
+          done = true;
+          return false;
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+
+      @Override
+      public T next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return gson.fromJson(json, type);
+      }
+    };
+    return StreamSupport
+        .stream(Spliterators.spliteratorUnknownSize(elements, Spliterator.ORDERED), false)
+        .onClose(() -> {
+          try {
+            json.close();
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+  }
+
+  /**
+   * Writes the elements as a JSON array, each one as soon as the stream
+   * provides it. The writer is flushed but not closed.
+   *
+   * @param writer where to write
+   * @param elements the elements
+   * @throws IOException if writing fails
+   */
+  public static <T> void writeArray(Writer writer, Stream<T> elements) throws IOException {
+    writeArray(writer, elements, GSON);
+  }
+
+  /**
+   * Same as {@link #writeArray(Writer, Stream)} with the given Gson
+   * configuration.
+   */
+  public static <T> void writeArray(Writer writer, Stream<T> elements, Gson gson)
+      throws IOException {
+    JsonWriter json = new JsonWriter(writer);
+    json.setSerializeNulls(true);
+    json.beginArray();
+    try {
+      elements.forEachOrdered(element -> {
+        if (element == null) {
+          try {
+            json.nullValue();
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        } else {
+          // throws JsonIOException on IOException
+          gson.toJson(element, element.getClass(), json);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    } catch (JsonIOException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw e;
+    }
+    json.endArray();
+    json.flush();
   }
 }
@@ -0,0 +1,117 @@
+package org.sdkit.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Reads an {@link InputStream} line by line without decoding it. Each line is
+ * exposed as a byte range of an internal, reused buffer which is only valid
+ * until the next call to {@link #next()}. Lines end at {@code \n}, {@code \r}
+ * or {@code \r\n}, like {@link java.io.BufferedReader#readLine()}.
+ *
+ */
+final class LineInput implements Closeable {
+
+  private final InputStream in;
+  private byte[] buf;
+  private ByteBuffer view;
+  private int pos;
+  private int limit;
+  private boolean eof;
+  private boolean skipLineFeed;
+  private int lineStart;
+  private int lineEnd;
+
+  LineInput(InputStream in) {
+    this(in, 1 << 16);
+  }
+
+  LineInput(InputStream in, int bufferSize) {
+    this.in = in;
+    this.buf = new byte[Math.max(bufferSize, 16)];
+    this.view = ByteBuffer.wrap(buf);
+  }
+
+  /**
+   * Advances to the next line.
+   *
+   * @return false at the end of the stream
+   */
+  boolean next() throws IOException {
+    if (skipLineFeed) {
+      if (pos == limit && !eof) {
+        fill();
+      }
+      if (pos < limit && buf[pos] == '\n') {
+        ++pos;
+      }
+      skipLineFeed = false;
+    }
+    int i = pos;
+    while (true) {
+      while (i < limit && buf[i] != '\n' && buf[i] != '\r') {
+        ++i;
+      }
+      if (i < limit) {
+        lineStart = pos;
+        lineEnd = i;
+        skipLineFeed = buf[i] == '\r';
+        pos = i + 1;
+        return true;
+      }
+      if (eof) {
+        if (pos == limit) {
+          return false;
+        }
+        lineStart = pos;
+        lineEnd = limit;
+        pos = limit;
+        return true;
+      }
+      i -= pos;
+      fill();
+    }
+  }
+
+  ByteBuffer buffer() {
+    return view;
+  }
+
+  int start() {
+    return lineStart;
+  }
+
+  int end() {
+    return lineEnd;
+  }
+
+  /**
+   * Moves the pending bytes to the front of the buffer, growing it when a
+   * single line fills it, and reads more input.
+   */
+  private void fill() throws IOException {
+    int pending = limit - pos;
+    if (pos > 0) {
+      System.arraycopy(buf, pos, buf, 0, pending);
+    } else if (pending == buf.length) {
+      buf = Arrays.copyOf(buf, buf.length * 2);
+      view = ByteBuffer.wrap(buf);
+    }
+    pos = 0;
+    limit = pending;
+    int n = in.read(buf, limit, buf.length - limit);
+    if (n < 0) {
+      eof = true;
+    } else {
+      limit += n;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+}
@@ -0,0 +1,75 @@
+package org.sdkit.util;
+
+/**
+ * Cursor over the lines of a {@link CharSequence}, returned by
+ * {@link StringUtil#lineSpans(CharSequence)}. Each line is exposed as a
+ * {@code [start, end)} span of the text, without its terminator, so that
+ * iterating does not copy or allocate anything.
+ *
+ * <p>
+ * Lines end with {@code \n}, {@code \r} or {@code \r\n}. Like
+ * {@link java.io.BufferedReader#readLine()}, a terminator at the very end of
+ * the text does not start another, empty line.
+ *
+ */
+public final class LineSpans {
+
+  private final CharSequence text;
+  private int start;
+  private int end;
+  private int next;
+
+  LineSpans(CharSequence text) {
+    this.text = text;
+  }
+
+  /**
+   * Moves to the next line.
+   *
+   * @return false when there are no more lines
+   */
+  public boolean next() {
+    int length = text.length();
+    if (next >= length) {
+      return false;
+    }
+    int i = next;
+    char c = 0;
+    while (i < length && (c = text.charAt(i)) != '\n' && c != '\r') {
+      ++i;
+    }
+    start = next;
+    end = i;
+    if (i < length && c == '\r' && i + 1 < length && text.charAt(i + 1) == '\n') {
+      ++i;
+    }
+    next = i + 1;
+    return true;
+  }
+
+  public CharSequence getText() {
+    return text;
+  }
+
+  /**
+   * Returns the index of the first character of the current line.
+   */
+  public int start() {
+    return start;
+  }
+
+  /**
+   * Returns the index following the last character of the current line.
+   */
+  public int end() {
+    return end;
+  }
+
+  /**
+   * Returns the current line. This copies it unless the text is a
+   * {@link java.nio.CharBuffer} or similar view.
+   */
+  public CharSequence line() {
+    return text.subSequence(start, end);
+  }
+}
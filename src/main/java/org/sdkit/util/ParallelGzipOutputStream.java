@@ -0,0 +1,143 @@
+package org.sdkit.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Gzip output stream compressing independent blocks concurrently, in the
+ * spirit of pigz. Each block becomes one member written by
+ * {@link GzipMembers#compress}; blocks are cut after the last line terminator
+ * they contain so that readers can also parse the members independently.
+ *
+ */
+final class ParallelGzipOutputStream extends OutputStream {
+
+  static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+
+  private final OutputStream out;
+  private final ExecutorService executor;
+  private final boolean shutdownExecutor;
+  private final int maxPending;
+  private final int level;
+  private final Queue<Future<byte[]>> pending = new ArrayDeque<>();
+  private byte[] block;
+  private int count;
+  private boolean anyMember;
+  private boolean closed;
+
+  /**
+   * @param shutdownExecutor true to shut the executor down on {@link #close()}
+   */
+  ParallelGzipOutputStream(OutputStream out, ExecutorService executor, boolean shutdownExecutor,
+      int parallelism, int blockSize, int level) {
+    this.out = out;
+    this.executor = executor;
+    this.shutdownExecutor = shutdownExecutor;
+    this.maxPending = 2 * parallelism;
+    this.level = level;
+    this.block = new byte[blockSize];
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    if (count == block.length) {
+      submitBlock();
+    }
+    block[count++] = (byte) b;
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    while (len > 0) {
+      if (count == block.length) {
+        submitBlock();
+      }
+      int n = Math.min(len, block.length - count);
+      System.arraycopy(b, off, block, count, n);
+      count += n;
+      off += n;
+      len -= n;
+    }
+  }
+
+  private void submitBlock() throws IOException {
+    int cut = count;
+    while (cut > 0 && !ArrayScanner.isLineTerminator(block[cut - 1])) {
+      --cut;
+    }
+    if (cut == 0) {
+      // a single line longer than the block
+      cut = count;
+    }
+    byte[] data = block;
+    int length = cut;
+    pending.add(executor.submit(() -> GzipMembers.compress(data, 0, length, level)));
+    anyMember = true;
+
+    block = new byte[block.length];
+    count -= cut;
+    System.arraycopy(data, cut, block, 0, count);
+
+    while (pending.size() > maxPending) {
+      writeNext();
+    }
+  }
+
+  private void writeNext() throws IOException {
+    try {
+      out.write(pending.remove().get());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    } catch (ExecutionException e) {
+      throw new IOException("Compression failed", e.getCause()); //$NON-NLS-1$
+    }
+  }
+
+  /**
+   * Compresses and writes everything buffered so far.
+   */
+  @Override
+  public void flush() throws IOException {
+    if (count > 0) {
+      submitBlock();
+      while (count > 0) {
+        submitBlock();
+      }
+    }
+    while (!pending.isEmpty()) {
+      writeNext();
+    }
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      flush();
+      if (!anyMember) {
+        // a gzip file has at least one member
+        out.write(GzipMembers.compress(new byte[0], 0, 0, level));
+      }
+    } finally {
+      for (Future<byte[]> future : pending) {
+        future.cancel(true);
+      }
+      block = null;
+      if (shutdownExecutor) {
+        executor.shutdownNow();
+      }
+      out.close();
+    }
+  }
+}
@@ -0,0 +1,146 @@
+package org.sdkit.util;
+
+import java.util.Arrays;
+
+/**
+ * Mergeable quantile sketch with relative accuracy, after DDSketch (Masson et
+ * al., 2019): values are counted in buckets whose bounds grow geometrically,
+ * so any quantile is returned within a relative error of {@code alpha} of
+ * the exact one, whatever the distribution. Merging two sketches adds their
+ * buckets, which makes the result independent of how the values were split.
+ *
+ * <p>
+ * Memory grows with the logarithm of the range of the values, not with their
+ * number. NaN values are ignored.
+ *
+ */
+final class QuantileSketch {
+
+  static final double DEFAULT_ALPHA = 0.01;
+
+  /** Smaller magnitudes are counted as zero. */
+  private static final double MIN_INDEXABLE = 1e-300;
+
+  private final double alpha;
+  private final double gamma;
+  private final double logGamma;
+  private final Buckets positive = new Buckets();
+  private final Buckets negative = new Buckets();
+  private long zeroCount;
+  private long count;
+
+  QuantileSketch() {
+    this(DEFAULT_ALPHA);
+  }
+
+  QuantileSketch(double alpha) {
+    if (!(alpha > 0 && alpha < 1)) {
+      throw new IllegalArgumentException("alpha must be in (0, 1): " + alpha); //$NON-NLS-1$
+    }
+    this.alpha = alpha;
+    this.gamma = (1 + alpha) / (1 - alpha);
+    this.logGamma = Math.log(gamma);
+  }
+
+  void add(double value) {
+    if (Double.isNaN(value)) {
+      return;
+    }
+    if (value > MIN_INDEXABLE) {
+      positive.add(index(value), 1);
+    } else if (value < -MIN_INDEXABLE) {
+      negative.add(index(-value), 1);
+    } else {
+      ++zeroCount;
+    }
+    ++count;
+  }
+
+  void merge(QuantileSketch other) {
+    if (other.alpha != alpha) {
+      throw new IllegalArgumentException("Sketches have different accuracies"); //$NON-NLS-1$
+    }
+    positive.merge(other.positive);
+    negative.merge(other.negative);
+    zeroCount += other.zeroCount;
+    count += other.count;
+  }
+
+  long getCount() {
+    return count;
+  }
+
+  /**
+   * Returns the value of rank {@code q * (count - 1)}, or NaN when empty.
+   */
+  double quantile(double q) {
+    if (q < 0 || q > 1) {
+      throw new IllegalArgumentException("Quantile must be in [0, 1]: " + q); //$NON-NLS-1$
+    }
+    if (count == 0) {
+      return Double.NaN;
+    }
+    long rank = (long) (q * (count - 1));
+    long seen = 0;
+    // negative values, from the largest magnitude down
+    for (int i = negative.counts.length - 1; i >= 0; --i) {
+      seen += negative.counts[i];
+      if (seen > rank) {
+        return -value(negative.offset + i);
+      }
+    }
+    seen += zeroCount;
+    if (seen > rank) {
+      return 0;
+    }
+    for (int i = 0; i < positive.counts.length; ++i) {
+      seen += positive.counts[i];
+      if (seen > rank) {
+        return value(positive.offset + i);
+      }
+    }
+    return value(positive.offset + positive.counts.length - 1);
+  }
+
+  private int index(double magnitude) {
+    // infinities land in the last bucket
+    return (int) Math.ceil(Math.log(Math.min(magnitude, Double.MAX_VALUE)) / logGamma);
+  }
+
+  /** Returns the value within {@code alpha} of every value of the bucket. */
+  private double value(int index) {
+    return 2 * Math.pow(gamma, index) / (gamma + 1);
+  }
+
+  /** Counts indexed from {@code offset}, grown on either side on demand. */
+  private static final class Buckets {
+    long[] counts = new long[0];
+    int offset;
+
+    void add(int index, long n) {
+      if (counts.length == 0) {
+        counts = new long[16];
+        offset = index - 8;
+      }
+      if (index < offset) {
+        int shift = Math.max(offset - index, counts.length / 2);
+        long[] grown = new long[counts.length + shift];
+        System.arraycopy(counts, 0, grown, shift, counts.length);
+        counts = grown;
+        offset -= shift;
+      } else if (index >= offset + counts.length) {
+        counts = Arrays.copyOf(counts,
+            Math.max(index - offset + 1, counts.length + counts.length / 2));
+      }
+      counts[index - offset] += n;
+    }
+
+    void merge(Buckets other) {
+      for (int i = 0; i < other.counts.length; ++i) {
+        if (other.counts[i] != 0) {
+          add(other.offset + i, other.counts[i]);
+        }
+      }
+    }
+  }
+}
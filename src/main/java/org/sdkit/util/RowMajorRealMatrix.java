@@ -0,0 +1,94 @@
+package org.sdkit.util;
+
+import org.apache.commons.math3.exception.DimensionMismatchException;
+import org.apache.commons.math3.linear.AbstractRealMatrix;
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.apache.commons.math3.linear.RealMatrix;
+
+/**
+ * {@link RealMatrix} over a row-major {@code double[]} owned by someone else,
+ * used to hand {@link ArrayMatrix} data to commons-math without copying it.
+ *
+ */
+final class RowMajorRealMatrix extends AbstractRealMatrix {
+
+  private final double[] data;
+  private final int rows;
+  private final int cols;
+
+  RowMajorRealMatrix(double[] data, int rows, int cols) {
+    super(rows, cols);
+    this.data = data;
+    this.rows = rows;
+    this.cols = cols;
+  }
+
+  @Override
+  public int getRowDimension() {
+    return rows;
+  }
+
+  @Override
+  public int getColumnDimension() {
+    return cols;
+  }
+
+  @Override
+  public RealMatrix createMatrix(int rowDimension, int columnDimension) {
+    return new RowMajorRealMatrix(new double[rowDimension * columnDimension], rowDimension,
+        columnDimension);
+  }
+
+  @Override
+  public RealMatrix copy() {
+    return new RowMajorRealMatrix(data.clone(), rows, cols);
+  }
+
+  @Override
+  public double getEntry(int row, int column) {
+    MatrixUtils.checkMatrixIndex(this, row, column);
+    return data[row * cols + column];
+  }
+
+  @Override
+  public void setEntry(int row, int column, double value) {
+    MatrixUtils.checkMatrixIndex(this, row, column);
+    data[row * cols + column] = value;
+  }
+
+  @Override
+  public void addToEntry(int row, int column, double increment) {
+    MatrixUtils.checkMatrixIndex(this, row, column);
+    data[row * cols + column] += increment;
+  }
+
+  @Override
+  public void multiplyEntry(int row, int column, double factor) {
+    MatrixUtils.checkMatrixIndex(this, row, column);
+    data[row * cols + column] *= factor;
+  }
+
+  @Override
+  public double[] getRow(int row) {
+    MatrixUtils.checkRowIndex(this, row);
+    double[] values = new double[cols];
+    System.arraycopy(data, row * cols, values, 0, cols);
+    return values;
+  }
+
+  @Override
+  public double[] operate(double[] v) {
+    if (v.length != cols) {
+      throw new DimensionMismatchException(v.length, cols);
+    }
+    double[] out = new double[rows];
+    for (int row = 0, offset = 0; row < rows; ++row, offset += cols) {
+      double sum = 0;
+      for (int col = 0; col < cols; ++col) {
+        sum += data[offset + col] * v[col];
+      }
+      out[row] = sum;
+    }
+    return out;
+  }
+}
@@ -2,7 +2,9 @@ package org.sdkit.util;
 
 import java.io.File;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 /**
  * This util class contains several String helper methods.
@@ -67,15 +69,73 @@ public final class StringUtil {
    * @return when null or empty
    */
   public static boolean isNullOrEmpty(String input) {
-    return input == null || input.trim().isEmpty();
+    return input == null || isBlank(input);
   }
 
+  /**
+   * Returns true when the text only contains characters which
+   * {@link String#trim()} removes, without copying it.
+   *
+   * @param input text to check
+   * @return when empty or blank
+   */
+  public static boolean isBlank(CharSequence input) {
+    for (int i = 0; i < input.length(); ++i) {
+      if (input.charAt(i) > ' ') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Splits the text at {@code \n}, {@code \r} and {@code \r\n}, with the same
+   * result as {@code text.split("\\r?\\n|\\r")}: trailing empty lines are
+   * dropped.
+   */
   public static String[] splitByNewLine(String text) {
-    return text.split("\\r?\\n|\\r");
+    List<String> lines = new ArrayList<>();
+    LineSpans spans = lineSpans(text);
+    int nonEmpty = 0;
+    while (spans.next()) {
+      if (spans.end() == text.length() && lines.isEmpty()) {
+        // no terminator
+        return new String[] {text};
+      }
+      lines.add(text.substring(spans.start(), spans.end()));
+      if (spans.end() > spans.start()) {
+        nonEmpty = lines.size();
+      }
+    }
+    if (lines.isEmpty()) {
+      return new String[] {text};
+    }
+    return lines.subList(0, nonEmpty).toArray(new String[nonEmpty]);
   }
 
+  /**
+   * Returns a cursor over the lines of the text which does not copy them.
+   */
+  public static LineSpans lineSpans(CharSequence text) {
+    return new LineSpans(text);
+  }
+
+  /**
+   * Doubles every backslash of the input.
+   */
   public static String escapeBackslash(String input) {
-    return input.replaceAll("\\\\", "\\\\\\\\");
+    int i = input.indexOf('\\');
+    if (i < 0) {
+      return input;
+    }
+    StringBuilder builder = new StringBuilder(input.length() + 16);
+    int from = 0;
+    do {
+      builder.append(input, from, i + 1).append('\\');
+      from = i + 1;
+      i = input.indexOf('\\', from);
+    } while (i >= 0);
+    return builder.append(input, from, input.length()).toString();
   }
 
   public static String separatorsToUnix(String input) {
@@ -101,26 +161,13 @@ public final class StringUtil {
     return qquote(path.toString());
   }
 
+  /**
+   * Returns the first {@code left} and last {@code right} values of the array.
+   * Pass a {@link DoubleArrayMessage} to the logger instead to only format
+   * the values when they are logged.
+   */
   public static String logArray(double[] arr, int left, int right) {
-
-    if (arr == null) {
-      return "null";
-    }
-
-    if (left + right > arr.length) {
-      return arr.toString();
-    }
-
-    StringBuilder builder = new StringBuilder("[");
-    for (int i = 0; i < left; ++i) {
-      builder.append(String.format("%s, ", arr[i]));
-    }
-    builder.append("... ");
-    for (int i = right; i > 0; --i) {
-      builder.append(String.format(", %s", arr[arr.length - i]));
-    }
-    builder.append("]");
-    return builder.toString();
+    return new DoubleArrayMessage(arr, left, right).getFormattedMessage();
   }
 
   public static String logArray(double[] arr, int nb) {
@@ -133,17 +180,9 @@ public final class StringUtil {
       return Arrays.toString(arr);
     }
 
-    if (nb == 2) {
-      return String.format("[%s, %s...]", arr[0], arr[1]);
-    }
-
-    if (nb == 4) {
-      return String.format("[%s, %s, %s, %s...]", arr[0], arr[1], arr[2], arr[3]);
-    }
-
     StringBuilder builder = new StringBuilder("[");
     for (int i = 0; i < nb; ++i) {
-      builder.append(String.format("%s", arr[i]));
+      builder.append(arr[i]);
       if (i < nb - 1) builder.append(", ");
     }
     builder.append("...]");
@@ -0,0 +1,176 @@
+package org.sdkit.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Temporary directory deleted with its content by {@link #close()}, or at the
+ * latest when the JVM exits.
+ *
+ * <p>
+ * All the directories left at exit are deleted by a single shutdown hook,
+ * concurrently and subdirectory by subdirectory on a fork-join pool. A file
+ * which cannot be deleted does not stop the others; failures are printed to
+ * {@code System.err}.
+ *
+ */
+public final class TempDirectory implements Closeable {
+
+  private static final Set<Path> registry = ConcurrentHashMap.newKeySet();
+  private static volatile boolean hookRegistered;
+
+  private final Path path;
+
+  private TempDirectory(Path path) {
+    this.path = path;
+  }
+
+  /**
+   * Creates a new directory in the default temporary-file directory.
+   */
+  public static TempDirectory create(String prefix) throws IOException {
+    Path path = Files.createTempDirectory(prefix);
+    deleteOnExit(path);
+    return new TempDirectory(path);
+  }
+
+  public Path getPath() {
+    return path;
+  }
+
+  /**
+   * Deletes the directory and its content now.
+   *
+   * @throws IOException if some files cannot be deleted, the others being
+   *         suppressed by the first one
+   */
+  @Override
+  public void close() throws IOException {
+    if (registry.remove(path)) {
+      List<IOException> failures = delete(Collections.singleton(path));
+      if (!failures.isEmpty()) {
+        IOException e = failures.get(0);
+        for (int i = 1; i < failures.size(); ++i) {
+          e.addSuppressed(failures.get(i));
+        }
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Registers a directory tree to be deleted when the JVM exits.
+   */
+  static void deleteOnExit(Path path) {
+    if (!hookRegistered) {
+      synchronized (registry) {
+        if (!hookRegistered) {
+          Runtime.getRuntime().addShutdownHook(new Thread(TempDirectory::deleteRegistered,
+              "TempDirectory cleanup")); //$NON-NLS-1$
+          hookRegistered = true;
+        }
+      }
+    }
+    registry.add(path);
+  }
+
+  /**
+   * Runs in the shutdown hook. Failures go to {@code System.err} because the
+   * shutdown hook of log4j may already have stopped logging.
+   */
+  private static void deleteRegistered() {
+    List<Path> paths = new ArrayList<>(registry);
+    registry.clear();
+    for (IOException e : delete(paths)) {
+      System.err.println("Failed to delete temporary file: " + e); //$NON-NLS-1$
+    }
+  }
+
+  /**
+   * Deletes the trees in parallel and returns the failures.
+   */
+  static List<IOException> delete(Collection<Path> paths) {
+    if (paths.isEmpty()) {
+      return new ArrayList<>();
+    }
+    Queue<IOException> failures = new ConcurrentLinkedQueue<>();
+    ForkJoinPool pool = new ForkJoinPool();
+    try {
+      List<DeleteTree> tasks = new ArrayList<>(paths.size());
+      for (Path path : paths) {
+        tasks.add(new DeleteTree(path, failures));
+      }
+      pool.invoke(new RecursiveAction() {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void compute() {
+          invokeAll(tasks);
+        }
+      });
+    } finally {
+      pool.shutdown();
+    }
+    return new ArrayList<>(failures);
+  }
+
+  /** Deletes the files of a directory, forks its subdirectories, then deletes it. */
+  private static final class DeleteTree extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final Path dir;
+    private final transient Queue<IOException> failures;
+
+    DeleteTree(Path dir, Queue<IOException> failures) {
+      this.dir = dir;
+      this.failures = failures;
+    }
+
+    @Override
+    protected void compute() {
+      if (!Files.isDirectory(dir, LinkOption.NOFOLLOW_LINKS)) {
+        delete(dir);
+        return;
+      }
+      List<DeleteTree> subdirs = new ArrayList<>();
+      try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+        for (Path entry : entries) {
+          if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+            subdirs.add(new DeleteTree(entry, failures));
+          } else {
+            delete(entry);
+          }
+        }
+      } catch (NoSuchFileException e) {
+        return;
+      } catch (IOException e) {
+        failures.add(e);
+      }
+      invokeAll(subdirs);
+      delete(dir);
+    }
+
+    private void delete(Path file) {
+      try {
+        Files.deleteIfExists(file);
+      } catch (IOException e) {
+        failures.add(e);
+      }
+    }
+  }
+}
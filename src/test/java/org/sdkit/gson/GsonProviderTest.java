@@ -0,0 +1,30 @@
+package org.sdkit.gson;
+
+import org.junit.Assert;
+import org.junit.Test;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+
+public class GsonProviderTest extends Assert {
+
+  static class Model {
+    DoubleProperty ratio = new SimpleDoubleProperty(0.5);
+    int[] counts = {1, 2};
+  }
+
+  @Test
+  public void shared() {
+    assertSame(GsonProvider.get(), GsonProvider.get());
+
+    GsonProvider.warmUp(Model.class);
+    assertTrue(GsonProvider.getAdapterTypes().contains(Model.class));
+    assertTrue(GsonProvider.getAdapterTypes().contains(DoubleProperty.class));
+
+    String json = GsonProvider.get().toJson(new Model());
+    assertEquals("{\"ratio\":0.5,\"counts\":[1,2]}", json);
+    int count = GsonProvider.getAdapterBuildCount();
+    assertEquals(0.5, GsonProvider.get().fromJson(json, Model.class).ratio.get(), 0);
+    assertEquals(json, GsonProvider.get().toJson(new Model()));
+    assertEquals(count, GsonProvider.getAdapterBuildCount());
+  }
+}
@@ -0,0 +1,48 @@
+package org.sdkit.gson;
+
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Test;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import javafx.beans.property.ListProperty;
+import javafx.beans.property.SimpleListProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+public class ObservableListTypeAdapterFactoryTest extends Assert {
+
+  static class Point {
+    int x;
+    int y;
+
+    Point(int x, int y) {
+      this.x = x;
+      this.y = y;
+    }
+  }
+
+  static class Model {
+    ListProperty<String> names =
+        new SimpleListProperty<>(FXCollections.observableArrayList("a", "b"));
+    ObservableList<Point> points = FXCollections.observableArrayList(new Point(1, 2));
+    ListProperty<Double> empty = new SimpleListProperty<>();
+  }
+
+  @Test
+  public void roundTrip() {
+    Gson gson = new GsonBuilder().registerTypeAdapterFactory(new ObservableListTypeAdapterFactory())
+        .create();
+    String json = gson.toJson(new Model());
+    assertEquals("{\"names\":[\"a\",\"b\"],\"points\":[{\"x\":1,\"y\":2}]}", json);
+
+    Model model = gson.fromJson(json, Model.class);
+    assertEquals(Arrays.asList("a", "b"), model.names.get());
+    assertEquals(1, model.points.size());
+    assertEquals(2, model.points.get(0).y);
+    assertNull(model.empty.get());
+
+    model = gson.fromJson("{\"empty\":[1.5,null]}", Model.class);
+    assertEquals(Arrays.asList(1.5, null), model.empty);
+  }
+}
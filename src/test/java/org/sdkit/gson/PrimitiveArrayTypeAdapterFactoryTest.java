@@ -0,0 +1,88 @@
+package org.sdkit.gson;
+
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+
+public class PrimitiveArrayTypeAdapterFactoryTest extends Assert {
+
+  static class Spectrum {
+    double[] values;
+    int[] counts;
+  }
+
+  @Test
+  public void plain() {
+    Gson gson = new GsonBuilder().registerTypeAdapterFactory(new PrimitiveArrayTypeAdapterFactory())
+        .create();
+    Spectrum spectrum = new Spectrum();
+    spectrum.values = new double[] {1, -0.5, 1e-300, Double.MAX_VALUE};
+    spectrum.counts = new int[] {Integer.MIN_VALUE, 0, 7};
+    String json = gson.toJson(spectrum);
+    assertEquals("{\"values\":[1.0,-0.5,1.0E-300,1.7976931348623157E308],"
+        + "\"counts\":[-2147483648,0,7]}", json);
+
+    Spectrum read = gson.fromJson(json, Spectrum.class);
+    assertArrayEquals(spectrum.values, read.values, 0);
+    assertArrayEquals(spectrum.counts, read.counts);
+    assertEquals(0, gson.fromJson("{\"values\":[]}", Spectrum.class).values.length);
+    assertNull(gson.fromJson("{\"values\":null}", Spectrum.class).values);
+  }
+
+  @Test
+  public void compact() {
+    Gson gson = new GsonBuilder()
+        .registerTypeAdapterFactory(new PrimitiveArrayTypeAdapterFactory(2)).create();
+    Spectrum spectrum = new Spectrum();
+    spectrum.values = new double[1000];
+    spectrum.counts = new int[] {1};
+    Random random = new Random(22);
+    for (int i = 0; i < spectrum.values.length; ++i) {
+      spectrum.values[i] = random.nextGaussian();
+    }
+    String json = gson.toJson(spectrum);
+    assertTrue(json.startsWith("{\"values\":{\"f64le\":\""));
+    assertTrue(json.endsWith("\"counts\":[1]}"));
+
+    Spectrum read = gson.fromJson(json, Spectrum.class);
+    assertArrayEquals(spectrum.values, read.values, 0);
+    assertArrayEquals(spectrum.counts, read.counts);
+    assertArrayEquals(new int[] {1},
+        gson.fromJson("{\"counts\":{\"i32le\":\"AQAAAA==\"}}", Spectrum.class).counts);
+  }
+
+  @Test
+  public void tree() {
+    Gson gson = new GsonBuilder().registerTypeAdapterFactory(new PrimitiveArrayTypeAdapterFactory())
+        .create();
+    Spectrum spectrum = new Spectrum();
+    spectrum.values = new double[] {1, -0.5};
+    spectrum.counts = new int[] {3};
+    JsonElement tree = gson.toJsonTree(spectrum);
+    assertEquals("{\"values\":[1.0,-0.5],\"counts\":[3]}", tree.toString());
+
+    Spectrum read = gson.fromJson(tree, Spectrum.class);
+    assertArrayEquals(spectrum.values, read.values, 0);
+    assertArrayEquals(spectrum.counts, read.counts);
+    assertEquals(1, gson.toJsonTree(new int[] {1}).getAsJsonArray().get(0).getAsInt());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void nonFinite() {
+    new GsonBuilder().registerTypeAdapterFactory(new PrimitiveArrayTypeAdapterFactory()).create()
+        .toJson(new double[] {Double.NaN});
+  }
+
+  @Test
+  public void specialFloatingPointValues() {
+    Gson gson = new GsonBuilder().registerTypeAdapterFactory(new PrimitiveArrayTypeAdapterFactory())
+        .serializeSpecialFloatingPointValues().create();
+    String json = gson.toJson(new double[] {Double.NaN, 1, Double.NEGATIVE_INFINITY});
+    assertEquals("[NaN,1.0,-Infinity]", json);
+    assertArrayEquals(new double[] {Double.NaN, 1, Double.NEGATIVE_INFINITY},
+        gson.fromJson(json, double[].class), 0);
+  }
+}
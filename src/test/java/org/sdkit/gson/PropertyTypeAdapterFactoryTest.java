@@ -0,0 +1,60 @@
+package org.sdkit.gson;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.FloatProperty;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.LongProperty;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.beans.property.SimpleFloatProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.SimpleLongProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
+
+public class PropertyTypeAdapterFactoryTest extends Assert {
+
+  static class Model {
+    BooleanProperty flag = new SimpleBooleanProperty(true);
+    DoubleProperty ratio = new SimpleDoubleProperty(0.25);
+    FloatProperty scale = new SimpleFloatProperty(1.5f);
+    IntegerProperty count = new SimpleIntegerProperty(3);
+    LongProperty id = new SimpleLongProperty(1L << 40);
+    StringProperty name = new SimpleStringProperty("a\"b");
+    SimpleStringProperty empty = new SimpleStringProperty();
+    ObjectProperty<List<Integer>> values = new SimpleObjectProperty<>(Arrays.asList(1, 2));
+    ObjectProperty<String> missing;
+  }
+
+  @Test
+  public void roundTrip() {
+    Gson gson = new GsonBuilder().registerTypeAdapterFactory(new PropertyTypeAdapterFactory())
+        .create();
+    String json = gson.toJson(new Model());
+    assertEquals("{\"flag\":true,\"ratio\":0.25,\"scale\":1.5,\"count\":3,\"id\":1099511627776,"
+        + "\"name\":\"a\\\"b\",\"values\":[1,2]}", json);
+
+    Model model = gson.fromJson(json, Model.class);
+    assertTrue(model.flag.get());
+    assertEquals(0.25, model.ratio.get(), 0);
+    assertEquals(1.5f, model.scale.get(), 0);
+    assertEquals(3, model.count.get());
+    assertEquals(1L << 40, model.id.get());
+    assertEquals("a\"b", model.name.get());
+    assertEquals(Arrays.asList(1, 2), model.values.get());
+    assertNull(model.missing);
+
+    model = gson.fromJson("{\"name\":null,\"empty\":\"x\"}", Model.class);
+    assertNull(model.name);
+    assertEquals("x", model.empty.get());
+  }
+}
@@ -1,8 +1,41 @@
 package org.sdkit.util;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 import org.junit.Assert;
 import org.junit.Test;
 import org.sdkit.util.IO;
@@ -44,4 +77,744 @@ public class IOTest extends Assert {
     double[] actuals = IO.readArray(fname);
     assertArrayEquals(arr, actuals, 0);
   }
+
+  @Test
+  public void arrayCommentsAndLineTerminators() throws IOException {
+
+    Path fname = Files.createTempFile("io-", ""); //$NON-NLS-1$ //$NON-NLS-2$
+    Files.write(fname, "# header\r\n1 2\r\n\n3 4 \r5e1 -6.25".getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$
+
+    assertArrayEquals(new double[] {1, 2, 3, 4, 50, -6.25}, IO.readArray(fname), 0);
+  }
+
+  @Test
+  public void arrayDelimiters() throws IOException {
+
+    Path fname = Files.createTempFile("io-", ""); //$NON-NLS-1$ //$NON-NLS-2$
+    Files.write(fname, "1, 2,\n3,4".getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$
+    assertArrayEquals(new double[] {1, 2, 3, 4}, IO.readArray(fname, ","), 0); //$NON-NLS-1$
+
+    Files.write(fname, "1  2\n3\t4".getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$
+    assertArrayEquals(new double[] {1, 2, 3, 4}, IO.readArray(fname, "\\s+"), 0); //$NON-NLS-1$
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void arrayEmptyField() throws IOException {
+
+    Path fname = Files.createTempFile("io-", ""); //$NON-NLS-1$ //$NON-NLS-2$
+    Files.write(fname, "1  2".getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$
+    IO.readArray(fname);
+  }
+
+  @Test
+  public void arrayMatchesParseDouble() throws IOException {
+
+    Random random = new Random(42);
+    String[] literals = new String[2000];
+    for (int i = 0; i < literals.length; ++i) {
+      switch (i % 5) {
+        case 0:
+          literals[i] = String.valueOf(Double.longBitsToDouble(random.nextLong()));
+          break;
+        case 1:
+          literals[i] = String.valueOf(random.nextGaussian() * 1e3);
+          break;
+        case 2:
+          literals[i] = String.format(Locale.ROOT, "%.6f", random.nextDouble()); //$NON-NLS-1$
+          break;
+        case 3:
+          literals[i] = random.nextInt() + "e" + (random.nextInt(60) - 30); //$NON-NLS-1$
+          break;
+        default:
+          literals[i] = String.valueOf((float) random.nextDouble());
+      }
+    }
+    literals[0] = "-0"; //$NON-NLS-1$
+    literals[1] = "1.0d"; //$NON-NLS-1$
+    literals[2] = "NaN"; //$NON-NLS-1$
+    literals[3] = "-Infinity"; //$NON-NLS-1$
+    literals[4] = "0x1.8p1"; //$NON-NLS-1$
+    literals[5] = ".5"; //$NON-NLS-1$
+    literals[6] = "9007199254740993"; //$NON-NLS-1$
+
+    Path fname = Files.createTempFile("io-", ""); //$NON-NLS-1$ //$NON-NLS-2$
+    Files.write(fname, Arrays.asList(literals));
+
+    double[] actuals = IO.readArray(fname);
+    assertEquals(literals.length, actuals.length);
+    for (int i = 0; i < literals.length; ++i) {
+      assertEquals(literals[i], Double.doubleToRawLongBits(Double.parseDouble(literals[i])),
+          Double.doubleToRawLongBits(actuals[i]));
+    }
+  }
+
+  @Test
+  public void arrayParallel() throws IOException {
+
+    Random random = new Random(7);
+    StringBuilder text = new StringBuilder("# values\n"); //$NON-NLS-1$
+    for (int row = 0; row < 5000; ++row) {
+      text.append(random.nextDouble()).append(' ').append(random.nextInt(1000))
+          .append(row % 3 == 0 ? "\r\n" : "\n"); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    Path fname = Files.createTempFile("io-", ""); //$NON-NLS-1$ //$NON-NLS-2$
+    Files.write(fname, text.toString().getBytes(StandardCharsets.UTF_8));
+
+    double[] expecteds = IO.readArray(fname);
+    assertArrayEquals(expecteds, IO.readArrayParallel(fname, " ", 4, 1000), 0); //$NON-NLS-1$
+    assertArrayEquals(expecteds, IO.readArrayParallel(fname, " ", 4), 0); //$NON-NLS-1$
+  }
+
+  @Test
+  public void arrayBinary() throws IOException {
+
+    double[] arr = new double[] {1, 2, 4, 5, 7, 8};
+
+    double[][] arr2D = new double[][] {
+        {1, 2},
+        {4, 5},
+        {7, 8}
+    };
+
+    Path fname = Files.createTempFile("io-", ".bin"); //$NON-NLS-1$ //$NON-NLS-2$
+
+    IO.saveArrayBinary(fname, arr2D);
+    assertEquals(ArrayFileHeader.SIZE + arr.length * Double.BYTES, Files.size(fname));
+
+    ArrayFileHeader header = IO.readArrayBinaryHeader(fname);
+    assertEquals(3, header.getRows());
+    assertEquals(2, header.getCols());
+
+    DoubleBuffer mapped = IO.mapArrayBinary(fname);
+    assertTrue(mapped.isReadOnly());
+    assertEquals(5, mapped.get(3), 0);
+    assertArrayEquals(arr, IO.readArrayBinary(fname), 0);
+
+    IO.saveArrayBinary(fname, arr, 3);
+    assertEquals(2, IO.readArrayBinaryHeader(fname).getRows());
+    assertArrayEquals(arr, IO.readArrayBinary(fname), 0);
+  }
+
+  @Test(expected = IOException.class)
+  public void arrayBinaryRejectsText() throws IOException {
+
+    Path fname = Files.createTempFile("io-", ""); //$NON-NLS-1$ //$NON-NLS-2$
+    IO.saveArray(fname, new double[] {1, 2, 4, 5, 7, 8});
+    IO.mapArrayBinary(fname);
+  }
+
+  @Test
+  public void arrayShortestRoundTrip() throws IOException {
+
+    double[] arr = new double[] {0.1, -0.0, 1e-3, 1e7, 1e23, 2e-3, Double.MIN_VALUE,
+        Double.MAX_VALUE, Double.NaN, Double.NEGATIVE_INFINITY, 123456.789, 5};
+
+    Path fname = Files.createTempFile("io-", ""); //$NON-NLS-1$ //$NON-NLS-2$
+
+    IO.saveArray(fname, "# values", arr, 4, ","); //$NON-NLS-1$ //$NON-NLS-2$
+    assertEquals(Arrays.asList("# values", //$NON-NLS-1$
+        "0.1,-0.0,0.001,1.0E7", //$NON-NLS-1$
+        "1.0E23,0.002,4.9E-324,1.7976931348623157E308", //$NON-NLS-1$
+        "NaN,-Infinity,123456.789,5.0"), Files.readAllLines(fname)); //$NON-NLS-1$
+    assertArrayEquals(arr, IO.readArray(fname, ","), 0); //$NON-NLS-1$
+
+    Random random = new Random(3);
+    double[][] arr2D = new double[500][3];
+    for (double[] row : arr2D) {
+      row[0] = Double.longBitsToDouble(random.nextLong());
+      row[1] = random.nextDouble();
+      row[2] = random.nextInt(100) / 10.0;
+    }
+    IO.saveArray(fname, arr2D);
+    double[] actuals = IO.readArray(fname);
+    for (int i = 0; i < actuals.length; ++i) {
+      assertEquals(Double.doubleToLongBits(arr2D[i / 3][i % 3]), Double.doubleToLongBits(actuals[i]));
+    }
+  }
+
+  @Test
+  public void rows() throws IOException {
+
+    Path fname = Files.createTempFile("io-", ""); //$NON-NLS-1$ //$NON-NLS-2$
+    Files.write(fname, "# header\n1 2 3\r\n\n4 5\r6".getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$
+
+    double[] row = new double[3];
+    try (ArrayRowCursor cursor = IO.rows(fname)) {
+      assertEquals(3, cursor.next(row));
+      assertArrayEquals(new double[] {1, 2, 3}, row, 0);
+      assertEquals(2, cursor.next(row));
+      assertEquals(5, row[1], 0);
+      assertEquals(6, cursor.values().sum(), 0);
+      assertEquals(-1, cursor.next(row));
+    }
+
+    try (ArrayRowCursor cursor = IO.rows(fname, "\\s+")) { //$NON-NLS-1$
+      assertEquals(21, cursor.values().sum(), 0);
+    }
+  }
+
+  @Test
+  public void arrayWriter() throws IOException {
+
+    Path fname = Files.createTempFile("io-", ""); //$NON-NLS-1$ //$NON-NLS-2$
+
+    double[] expecteds = new double[3 * 10000];
+    try (ArrayWriter writer =
+        IO.openArrayWriter(fname, 3, ",", 64, ArrayWriter.SyncPolicy.EVERY_BATCH)) { //$NON-NLS-1$
+      double[] row = new double[3];
+      for (int i = 0; i < 9000; ++i) {
+        row[0] = i;
+        row[1] = i / 7.0;
+        row[2] = -i;
+        System.arraycopy(row, 0, expecteds, 3 * i, 3);
+        writer.writeRow(row);
+      }
+      writer.flush();
+      assertEquals(9000 * 3, IO.readArray(fname, ",").length); //$NON-NLS-1$
+
+      for (int i = 9000; i < 10000; ++i) {
+        expecteds[3 * i] = i;
+      }
+      writer.writeRows(expecteds, 9000 * 3, 1000 * 3);
+      assertFalse(writer.offerRows(expecteds, 0, 66));
+    }
+
+    assertArrayEquals(expecteds, IO.readArray(fname, ","), 0); //$NON-NLS-1$
+  }
+
+  @Test
+  public void arrayWriterSync() throws IOException {
+
+    Path fname = Files.createTempFile("io-", ""); //$NON-NLS-1$ //$NON-NLS-2$
+
+    ForceCountingChannel channel = new ForceCountingChannel(
+        FileChannel.open(fname, StandardOpenOption.WRITE, StandardOpenOption.APPEND));
+    try (ArrayWriter writer =
+        new ArrayWriter(channel, 2, ",", 64, ArrayWriter.SyncPolicy.ON_FLUSH)) { //$NON-NLS-1$
+      writer.writeRow(new double[] {1, 2});
+      writer.flush();
+      assertEquals(1, channel.forces.get());
+      writer.flush();
+      assertEquals(1, channel.forces.get());
+      writer.writeRow(new double[] {3, 4});
+    }
+    assertEquals(2, channel.forces.get());
+    assertArrayEquals(new double[] {1, 2, 3, 4}, IO.readArray(fname, ","), 0); //$NON-NLS-1$
+
+    channel = new ForceCountingChannel(
+        FileChannel.open(fname, StandardOpenOption.WRITE, StandardOpenOption.APPEND));
+    try (ArrayWriter writer =
+        new ArrayWriter(channel, 2, ",", 64, ArrayWriter.SyncPolicy.NONE)) { //$NON-NLS-1$
+      writer.writeRow(new double[] {5, 6});
+      writer.flush();
+    }
+    assertEquals(0, channel.forces.get());
+  }
+
+  @Test(timeout = 10000)
+  public void arrayWriterOfferDuringFlush() throws Exception {
+
+    Path fname = Files.createTempFile("io-", ""); //$NON-NLS-1$ //$NON-NLS-2$
+
+    ForceCountingChannel channel = new ForceCountingChannel(
+        FileChannel.open(fname, StandardOpenOption.WRITE, StandardOpenOption.APPEND));
+    channel.gate = new CountDownLatch(1);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try (ArrayWriter writer =
+        new ArrayWriter(channel, 1, ",", 64, ArrayWriter.SyncPolicy.ON_FLUSH)) { //$NON-NLS-1$
+      writer.writeRow(new double[] {1});
+      Future<?> flush = executor.submit(() -> {
+        writer.flush();
+        return null;
+      });
+      while (channel.forces.get() == 0) {
+        Thread.sleep(1);
+      }
+      // the flush waits for the disk, producers do not
+      assertTrue(writer.offerRow(new double[] {2}));
+      writer.writeRow(new double[] {3});
+      assertFalse(flush.isDone());
+      channel.gate.countDown();
+      flush.get(10, TimeUnit.SECONDS);
+    } finally {
+      executor.shutdown();
+    }
+    assertArrayEquals(new double[] {1, 2, 3}, IO.readArray(fname, ","), 0); //$NON-NLS-1$
+  }
+
+  /**
+   * Counts the calls to {@link FileChannel#force(boolean)}.
+   */
+  private static final class ForceCountingChannel extends FileChannel {
+    final AtomicInteger forces = new AtomicInteger();
+    volatile CountDownLatch gate;
+    private final FileChannel channel;
+
+    ForceCountingChannel(FileChannel channel) {
+      this.channel = channel;
+    }
+
+    @Override
+    public void force(boolean metaData) throws IOException {
+      forces.incrementAndGet();
+      if (gate != null) {
+        try {
+          gate.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      channel.force(metaData);
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+      return channel.read(dst);
+    }
+
+    @Override
+    public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+      return channel.read(dsts, offset, length);
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+      return channel.write(src);
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+      return channel.write(srcs, offset, length);
+    }
+
+    @Override
+    public long position() throws IOException {
+      return channel.position();
+    }
+
+    @Override
+    public FileChannel position(long newPosition) throws IOException {
+      channel.position(newPosition);
+      return this;
+    }
+
+    @Override
+    public long size() throws IOException {
+      return channel.size();
+    }
+
+    @Override
+    public FileChannel truncate(long size) throws IOException {
+      channel.truncate(size);
+      return this;
+    }
+
+    @Override
+    public long transferTo(long position, long count, WritableByteChannel target)
+        throws IOException {
+      return channel.transferTo(position, count, target);
+    }
+
+    @Override
+    public long transferFrom(ReadableByteChannel src, long position, long count)
+        throws IOException {
+      return channel.transferFrom(src, position, count);
+    }
+
+    @Override
+    public int read(ByteBuffer dst, long position) throws IOException {
+      return channel.read(dst, position);
+    }
+
+    @Override
+    public int write(ByteBuffer src, long position) throws IOException {
+      return channel.write(src, position);
+    }
+
+    @Override
+    public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+      return channel.map(mode, position, size);
+    }
+
+    @Override
+    public FileLock lock(long position, long size, boolean shared) throws IOException {
+      return channel.lock(position, size, shared);
+    }
+
+    @Override
+    public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+      return channel.tryLock(position, size, shared);
+    }
+
+    @Override
+    protected void implCloseChannel() throws IOException {
+      channel.close();
+    }
+  }
+
+  @Test
+  public void matrix() throws IOException {
+
+    double[][] arr2D = new double[][] {
+        {1, 2},
+        {4, 5},
+        {7, 8}
+    };
+
+    Path fname = Files.createTempFile("io-", ""); //$NON-NLS-1$ //$NON-NLS-2$
+
+    IO.saveArray(fname, arr2D);
+    ArrayMatrix matrix = IO.readMatrix(fname);
+    assertEquals(3, matrix.getRows());
+    assertEquals(2, matrix.getCols());
+    assertEquals(5, matrix.get(1, 1), 0);
+
+    RealMatrix realMatrix = matrix.asRealMatrix();
+    assertArrayEquals(new double[] {5, 14, 23}, realMatrix.operate(new double[] {1, 2}), 0);
+    realMatrix.setEntry(2, 0, -7);
+    assertEquals(-7, matrix.getData()[4], 0);
+    assertEquals(-7, matrix.toArray2D()[2][0], 0);
+  }
+
+  @Test(expected = IOException.class)
+  public void matrixRagged() throws IOException {
+
+    Path fname = Files.createTempFile("io-", ""); //$NON-NLS-1$ //$NON-NLS-2$
+    Files.write(fname, "1 2\n3\n".getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$
+    IO.readMatrix(fname);
+  }
+
+  @Test
+  public void arrayGzip() throws IOException {
+
+    Random random = new Random(11);
+    double[][] arr2D = new double[40000][4];
+    for (double[] row : arr2D) {
+      for (int col = 0; col < row.length; ++col) {
+        row[col] = random.nextDouble();
+      }
+    }
+
+    Path plain = Files.createTempFile("io-", ""); //$NON-NLS-1$ //$NON-NLS-2$
+    Path fname = Files.createTempFile("io-", ".gz"); //$NON-NLS-1$ //$NON-NLS-2$
+    IO.saveArray(plain, arr2D, ","); //$NON-NLS-1$
+    IO.saveArrayGzip(fname, arr2D, ",", 4); //$NON-NLS-1$
+
+    // a standard gzip reader sees the concatenated members as one stream
+    try (InputStream in = new GZIPInputStream(Files.newInputStream(fname))) {
+      assertArrayEquals(Files.readAllBytes(plain), readAllBytes(in));
+    }
+
+    double[] expecteds = IO.readArray(plain, ","); //$NON-NLS-1$
+    assertArrayEquals(expecteds, IO.readArrayGzip(fname, ",", 4), 0); //$NON-NLS-1$
+  }
+
+  @Test
+  public void arrayGzipMembersSplitLines() throws IOException {
+
+    byte[] text = "# x\n1 2\r\n3 4\n5 6\n7".getBytes(StandardCharsets.UTF_8); //$NON-NLS-1$
+    int[] cuts = {0, 2, 6, 7, 8, 9, 13, text.length};
+
+    Path fname = Files.createTempFile("io-", ".gz"); //$NON-NLS-1$ //$NON-NLS-2$
+    try (OutputStream out = Files.newOutputStream(fname)) {
+      for (int i = 0; i < cuts.length - 1; ++i) {
+        out.write(GzipMembers.compress(text, cuts[i], cuts[i + 1] - cuts[i], 6));
+      }
+    }
+    assertArrayEquals(new double[] {1, 2, 3, 4, 5, 6, 7}, IO.readArrayGzip(fname, " ", 3), 0); //$NON-NLS-1$
+
+    try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(fname))) {
+      out.write(text);
+    }
+    assertArrayEquals(new double[] {1, 2, 3, 4, 5, 6, 7}, IO.readArrayGzip(fname, " ", 3), 0); //$NON-NLS-1$
+  }
+
+  private static byte[] readAllBytes(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    int n;
+    while ((n = in.read(buffer)) > 0) {
+      out.write(buffer, 0, n);
+    }
+    return out.toByteArray();
+  }
+
+  @Test
+  public void doubleMatrix() throws IOException {
+
+    DoubleMatrix matrix = DoubleMatrix.allocateDirect(3, 2);
+    matrix.put(0, 0, new double[] {1, 2, 4, 5, 7, 8}, 0, 6);
+    assertEquals(5, matrix.get(1, 1), 0);
+    assertEquals(7, matrix.row(2).get(0), 0);
+
+    Path fname = Files.createTempFile("io-", ".bin"); //$NON-NLS-1$ //$NON-NLS-2$
+    IO.saveMatrix(fname, matrix);
+    assertArrayEquals(new double[] {1, 2, 4, 5, 7, 8}, IO.readArrayBinary(fname), 0);
+
+    DoubleMatrix mapped = IO.mapMatrix(fname, true);
+    assertTrue(mapped.isMapped());
+    mapped.row(1).put(0, -4);
+    mapped.setUnchecked(2, 1, -8);
+    mapped.flush();
+
+    double[] row = new double[2];
+    IO.loadMatrix(fname).getRow(1, row);
+    assertArrayEquals(new double[] {-4, 5}, row, 0);
+    assertEquals(-8, IO.mapMatrix(fname, false).get(2, 1), 0);
+
+    DoubleMatrix created = IO.createMatrix(fname, 4, 3);
+    created.set(3, 2, 9);
+    assertEquals(ArrayFileHeader.SIZE + 12 * Double.BYTES, Files.size(fname));
+    assertEquals(9, IO.readArrayBinary(fname)[11], 0);
+  }
+
+  @Test(expected = IOException.class)
+  public void doubleMatrixEmptyShape() throws IOException {
+
+    Path fname = Files.createTempFile("io-", ".bin"); //$NON-NLS-1$ //$NON-NLS-2$
+    ByteBuffer header = ByteBuffer.allocate(ArrayFileHeader.SIZE);
+    new ArrayFileHeader(0, 0).write(header);
+    Files.write(fname, header.array());
+    assertEquals(0, IO.readArrayBinary(fname).length);
+    IO.mapMatrix(fname, false);
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void doubleMatrixBounds() {
+    DoubleMatrix.allocateDirect(3, 2).get(0, 2);
+  }
+
+  @Test
+  public void arrayAsync() throws Exception {
+
+    Random random = new Random(5);
+    double[][] arr2D = new double[20000][3];
+    for (double[] row : arr2D) {
+      row[0] = random.nextDouble();
+      row[2] = random.nextInt();
+    }
+
+    Path fname = Files.createTempFile("io-", ""); //$NON-NLS-1$ //$NON-NLS-2$
+    IO.saveArray(fname, arr2D);
+    double[] expecteds = IO.readArray(fname);
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      assertArrayEquals(expecteds, IO.readArrayAsync(fname, " ", executor).get(), 0); //$NON-NLS-1$
+
+      CompletableFuture<double[]> future = IO.readArrayAsync(fname, " ", executor); //$NON-NLS-1$
+      future.cancel(true);
+      assertTrue(future.isCancelled());
+    } finally {
+      executor.shutdown();
+    }
+
+    Path other = Files.createTempFile("io-", ""); //$NON-NLS-1$ //$NON-NLS-2$
+    IO.saveArray(other, new double[] {1, 2});
+    List<double[]> arrays = IO.readArrays(Arrays.asList(fname, other, fname));
+    assertEquals(3, arrays.size());
+    assertArrayEquals(expecteds, arrays.get(0), 0);
+    assertArrayEquals(new double[] {1, 2}, arrays.get(1), 0);
+    assertArrayEquals(expecteds, arrays.get(2), 0);
+  }
+
+  @Test(expected = IOException.class)
+  public void arraysMissingFile() throws IOException {
+    IO.readArrays(Arrays.asList(Paths.get("does-not-exist"))); //$NON-NLS-1$
+  }
+
+  @Test
+  public void columns() throws IOException {
+
+    Random random = new Random(11);
+    double[][] arr2D = new double[1000][40];
+    for (double[] row : arr2D) {
+      for (int j = 0; j < row.length; ++j) {
+        row[j] = random.nextGaussian();
+      }
+    }
+
+    Path fname = Files.createTempFile("io-", ""); //$NON-NLS-1$ //$NON-NLS-2$
+    IO.saveArray(fname, arr2D, ";"); //$NON-NLS-1$
+    for (String delimiter : new String[] {";", "[;]"}) { //$NON-NLS-1$ //$NON-NLS-2$
+      double[][] columns = IO.readColumns(fname, delimiter, 39, 2, 39);
+      assertEquals(3, columns.length);
+      for (int i = 0; i < arr2D.length; ++i) {
+        assertEquals(arr2D[i][39], columns[0][i], 0);
+        assertEquals(arr2D[i][2], columns[1][i], 0);
+        assertEquals(arr2D[i][39], columns[2][i], 0);
+      }
+    }
+
+    try {
+      IO.readColumns(fname, ";", 40); //$NON-NLS-1$
+      fail();
+    } catch (IOException e) {
+      assertTrue(e.getMessage().startsWith("Line 1 ")); //$NON-NLS-1$
+    }
+  }
+
+  @Test
+  public void arrayFileCache() throws Exception {
+
+    Path fname = Files.createTempFile("io-", ""); //$NON-NLS-1$ //$NON-NLS-2$
+    IO.saveArray(fname, new double[][] {{1, 2}, {3, 4}});
+
+    ArrayFileCache cache = new ArrayFileCache(1 << 20);
+    double[] first = cache.get(fname);
+    assertArrayEquals(new double[] {1, 2, 3, 4}, first, 0);
+    assertSame(first, cache.get(fname));
+    assertEquals(1, cache.stats().getHitCount());
+    assertEquals(1, cache.stats().getMissCount());
+
+    IO.saveArray(fname, new double[][] {{5, 6, 7}});
+    Files.setLastModifiedTime(fname,
+        FileTime.fromMillis(Files.getLastModifiedTime(fname).toMillis() + 1000));
+    assertArrayEquals(new double[] {5, 6, 7}, cache.get(fname), 0);
+    assertEquals(1, cache.size());
+
+    // concurrent misses read the file once
+    cache.invalidateAll();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<double[]>> futures = new ArrayList<>();
+      for (int i = 0; i < 8; ++i) {
+        futures.add(executor.submit(() -> cache.get(fname)));
+      }
+      for (Future<double[]> future : futures) {
+        assertArrayEquals(new double[] {5, 6, 7}, future.get(), 0);
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(3, cache.stats().getLoadCount());
+
+    // over budget
+    ArrayFileCache tiny = new ArrayFileCache(8);
+    tiny.get(fname);
+    assertEquals(0, tiny.size());
+    assertEquals(0, tiny.trackedFileCount());
+
+    // an entry can use most of the budget
+    Path large = Files.createTempFile("io-", ""); //$NON-NLS-1$ //$NON-NLS-2$
+    IO.saveArray(large, new double[40000]);
+    ArrayFileCache budget = new ArrayFileCache(1 << 20);
+    assertSame(budget.get(large), budget.get(large));
+    assertEquals(1, budget.stats().getHitCount());
+    assertEquals(0, budget.stats().getEvictionCount());
+
+    // evicted files are forgotten
+    ArrayFileCache small = new ArrayFileCache(100);
+    for (int i = 0; i < 20; ++i) {
+      Path other = Files.createTempFile("io-", ""); //$NON-NLS-1$ //$NON-NLS-2$
+      IO.saveArray(other, new double[] {i});
+      small.get(other);
+    }
+    assertTrue(small.stats().getEvictionCount() > 0);
+    assertEquals(small.size(), small.trackedFileCount());
+
+    // read errors are not wrapped
+    Path invalid = Files.createTempFile("io-", ""); //$NON-NLS-1$ //$NON-NLS-2$
+    Files.write(invalid, "1 x".getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$
+    try {
+      small.get(invalid);
+      fail();
+    } catch (IOException | RuntimeException e) {
+      assertFalse(e.getClass().getName().startsWith("com.google")); //$NON-NLS-1$
+    }
+    assertEquals(small.size(), small.trackedFileCount());
+  }
+
+  @Test
+  public void tempDirectory() throws IOException {
+
+    Path path;
+    try (TempDirectory dir = TempDirectory.create("io-")) { //$NON-NLS-1$
+      path = dir.getPath();
+      for (int i = 0; i < 20; ++i) {
+        Path sub = Files.createDirectories(path.resolve("a" + i).resolve("b")); //$NON-NLS-1$ //$NON-NLS-2$
+        Files.write(sub.resolve("f"), new byte[] {1}); //$NON-NLS-1$
+        Files.write(path.resolve("g" + i), new byte[] {2}); //$NON-NLS-1$
+      }
+    }
+    assertFalse(Files.exists(path));
+
+    Path other = Files.createTempDirectory("io-"); //$NON-NLS-1$
+    Files.write(other.resolve("f"), new byte[] {1}); //$NON-NLS-1$
+    Path file = Files.createTempFile("io-", ""); //$NON-NLS-1$ //$NON-NLS-2$
+    assertTrue(TempDirectory.delete(Arrays.asList(file, path, other)).isEmpty());
+    assertFalse(Files.exists(other));
+    assertFalse(Files.exists(file));
+  }
+
+  @Test
+  public void follow() throws Exception {
+
+    Path dir = Files.createTempDirectory("io-"); //$NON-NLS-1$
+    Path fname = dir.resolve("data.txt"); //$NON-NLS-1$
+    Files.write(fname, "1 2\n3".getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$
+
+    BlockingQueue<double[]> rows = new LinkedBlockingQueue<>();
+    try (ArrayFileFollower follower = new ArrayFileFollower(fname, " ", rows::add, 50)) { //$NON-NLS-1$
+      assertEquals(fname, follower.getPath());
+      assertArrayEquals(new double[] {1, 2}, rows.poll(10, TimeUnit.SECONDS), 0);
+
+      Files.write(fname, " 4\n5 6\n".getBytes(StandardCharsets.UTF_8), //$NON-NLS-1$
+          StandardOpenOption.APPEND);
+      assertArrayEquals(new double[] {3, 4}, rows.poll(10, TimeUnit.SECONDS), 0);
+      assertArrayEquals(new double[] {5, 6}, rows.poll(10, TimeUnit.SECONDS), 0);
+
+      // truncated
+      Files.write(fname, "7\n".getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$
+      assertArrayEquals(new double[] {7}, rows.poll(10, TimeUnit.SECONDS), 0);
+
+      // rotated
+      Path rotated = dir.resolve("new.txt"); //$NON-NLS-1$
+      Files.write(rotated, "8\n9\n".getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$
+      Files.write(fname, "10".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND); //$NON-NLS-1$
+      Files.move(rotated, fname, StandardCopyOption.REPLACE_EXISTING);
+      assertArrayEquals(new double[] {10}, rows.poll(10, TimeUnit.SECONDS), 0);
+      assertArrayEquals(new double[] {8}, rows.poll(10, TimeUnit.SECONDS), 0);
+      assertArrayEquals(new double[] {9}, rows.poll(10, TimeUnit.SECONDS), 0);
+    }
+    assertTrue(rows.isEmpty());
+  }
+
+  @Test
+  public void summarize() throws IOException {
+
+    Random random = new Random(15);
+    double[][] arr2D = new double[50000][3];
+    for (double[] row : arr2D) {
+      row[0] = random.nextGaussian();
+      row[1] = random.nextInt(100) - 50;
+      row[2] = Math.exp(random.nextDouble() * 10);
+    }
+
+    Path fname = Files.createTempFile("io-", ""); //$NON-NLS-1$ //$NON-NLS-2$
+    IO.saveArray(fname, arr2D);
+    for (ArraySummary summary : new ArraySummary[] {IO.summarize(fname, " "), //$NON-NLS-1$
+        IO.summarize(fname, " ", 1, 1 << 20), IO.summarize(fname, " ", 4, 4096)}) { //$NON-NLS-1$ //$NON-NLS-2$
+      assertEquals(3, summary.getColumnCount());
+      for (int j = 0; j < 3; ++j) {
+        double[] column = new double[arr2D.length];
+        for (int i = 0; i < arr2D.length; ++i) {
+          column[i] = arr2D[i][j];
+        }
+        DescriptiveStatistics stats = new DescriptiveStatistics(column);
+        assertEquals(arr2D.length, summary.getCount(j));
+        assertEquals(stats.getMin(), summary.getMin(j), 0);
+        assertEquals(stats.getMax(), summary.getMax(j), 0);
+        assertEquals(stats.getMean(), summary.getMean(j), 1e-9 * Math.abs(stats.getMean()) + 1e-12);
+        assertEquals(stats.getVariance(), summary.getVariance(j), 1e-9 * stats.getVariance());
+
+        Arrays.sort(column);
+        for (double q : new double[] {0, 0.01, 0.5, 0.9, 1}) {
+          double exact = column[(int) (q * (column.length - 1))];
+          assertEquals(exact, summary.getQuantile(j, q), 0.01 * Math.abs(exact) + 1e-12);
+        }
+      }
+    }
+  }
 }
@@ -0,0 +1,127 @@
+package org.sdkit.util;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.Assert;
+import org.junit.Test;
+import com.google.gson.Gson;
+
+public class JsonUtilTest extends Assert {
+
+  private static final String JSON = "{\"id\": 1, \"name\": \"a, b: {c}\", "
+      + "\"meta\": {\"device\": {\"id\": \"x\\\"y\", \"tags\": [1, {\"k\": 2}]}, \"n\": null},"
+      + " \"list\": [{\"a\": 1}, {\"b\": [2, 3]}], \"esc\\u0061\": true}";
+
+  @Test
+  public void keys() throws IOException {
+    assertEquals(Arrays.asList("id", "name", "meta", "list", "esca"), JsonUtil.keys(JSON));
+    assertEquals(JsonUtil.keys(JSON), JsonUtil.keys(new StringBuilder(JSON)));
+    assertEquals(Arrays.asList("device", "n"), JsonUtil.keys(JSON, "meta"));
+    assertEquals(Arrays.asList("id", "tags"), JsonUtil.keys(JSON, "meta.device"));
+    assertEquals(Arrays.asList("k"), JsonUtil.keys(JSON, "meta.device.tags.1"));
+    assertEquals(Arrays.asList("b"), JsonUtil.keys(new StringReader(JSON), "list.1"));
+    assertEquals(Collections.emptyList(), JsonUtil.keys(JSON, "list.2"));
+    assertEquals(Collections.emptyList(), JsonUtil.keys(JSON, "id"));
+    assertEquals(Collections.emptyList(), JsonUtil.keys(JSON, "missing"));
+    assertEquals(Collections.emptyList(), JsonUtil.keys("{}"));
+    assertEquals(Arrays.asList("a", "b"), JsonUtil.keys("{\"a\":1,\"b\":2}"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void keysMalformed() {
+    JsonUtil.keys("{\"a\" 1}");
+  }
+
+  @Test
+  public void extract() {
+    assertEquals("1", JsonUtil.extract(JSON, "id"));
+    assertEquals("a, b: {c}", JsonUtil.extract(JSON, "name"));
+    assertEquals("x\"y", JsonUtil.extract(JSON, "meta.device.id"));
+    assertEquals("[1, {\"k\": 2}]", JsonUtil.extract(JSON, "meta.device.tags"));
+    assertEquals("2", JsonUtil.extract(JSON, "meta.device.tags.1.k"));
+    assertEquals("3", JsonUtil.extract(JSON, "list.1.b.1"));
+    assertEquals("true", JsonUtil.extract(JSON, "esca"));
+    assertNull(JsonUtil.extract(JSON, "meta.n"));
+    assertNull(JsonUtil.extract(JSON, "meta.device.missing"));
+    assertNull(JsonUtil.extract(JSON, "id.x"));
+    assertEquals(JSON, JsonUtil.extract(JSON, ""));
+    assertEquals("42", JsonUtil.extract("42", ""));
+    assertEquals("true", JsonUtil.extract(" true", ""));
+    assertEquals("-1.5e3", JsonUtil.extract("-1.5e3\n", ""));
+    assertEquals("s", JsonUtil.extract("\"s\"", ""));
+    assertNull(JsonUtil.extract("null", ""));
+    assertEquals("7", JsonUtil.extract("[1, 7", "1"));
+    assertEquals("[2]", JsonUtil.extract("{\"a\": [2]", "a"));
+
+    // stops at the value: what follows is not read
+    assertEquals("1", JsonUtil.extract("{\"a\": 1, this is not JSON", "a"));
+  }
+
+  static class Record {
+    int id;
+    String name;
+
+    Record(int id, String name) {
+      this.id = id;
+      this.name = name;
+    }
+  }
+
+  @Test
+  public void streamArray() throws IOException {
+    StringWriter out = new StringWriter();
+    JsonUtil.writeArray(out, IntStream.range(0, 3).mapToObj(i -> new Record(i, "r" + i)));
+    String json = out.toString();
+    assertEquals("[{\"id\":0,\"name\":\"r0\"},{\"id\":1,\"name\":\"r1\"},"
+        + "{\"id\":2,\"name\":\"r2\"}]", json);
+
+    try (Stream<Record> records = JsonUtil.streamArray(new StringReader(json), Record.class)) {
+      assertEquals(Arrays.asList("r0", "r1", "r2"),
+          records.map(r -> r.name).collect(Collectors.toList()));
+    }
+
+    // stops early: the broken tail is never read
+    try (Stream<Record> records =
+        JsonUtil.streamArray(new StringReader("[{\"id\": 7}, {broken"), Record.class)) {
+      assertEquals(7, records.findFirst().get().id);
+    }
+    assertEquals(0, JsonUtil.streamArray(new StringReader(" [ ] "), Record.class).count());
+  }
+
+  @Test
+  public void jsonLines() throws IOException {
+    Path path = Files.createTempFile("json-", ".ndjson");
+    try (JsonLines.Writer writer = JsonLines.newWriter(path)) {
+      for (int i = 0; i < 10000; ++i) {
+        writer.write(new Record(i, "r\n" + i));
+      }
+    }
+    Files.write(path, "\r\n  \n{\"id\": 10000}".getBytes(StandardCharsets.UTF_8),
+        StandardOpenOption.APPEND);
+
+    List<Record> records = JsonLines.read(path, Record.class, new Gson(), 4, 4096);
+    assertEquals(10001, records.size());
+    for (int i = 0; i < 10000; ++i) {
+      assertEquals(i, records.get(i).id);
+      assertEquals("r\n" + i, records.get(i).name);
+    }
+    assertEquals(records.size(), JsonLines.<Record>read(path, Record.class).size());
+
+    Queue<Record> unordered = new ConcurrentLinkedQueue<>();
+    JsonLines.<Record>forEachUnordered(path, Record.class, new Gson(), 4, 4096, unordered::add);
+    assertEquals(10001, unordered.stream().mapToInt(r -> r.id).distinct().count());
+  }
+}
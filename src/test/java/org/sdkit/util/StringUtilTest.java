@@ -0,0 +1,69 @@
+package org.sdkit.util;
+
+import java.nio.CharBuffer;
+import java.util.Random;
+import org.apache.logging.log4j.util.StringBuilderFormattable;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StringUtilTest extends Assert {
+
+  @Test
+  public void splitByNewLine() {
+    String[] texts = {"", "a", "a\n", "\n", "\r\n\r\n", "\na", "a\r\rb\r\n\nc", "a\r", "a\n\n"};
+    for (String text : texts) {
+      assertArrayEquals(text, text.split("\\r?\\n|\\r"), StringUtil.splitByNewLine(text));
+    }
+
+    Random random = new Random(16);
+    char[] alphabet = {'a', ' ', '\r', '\n'};
+    for (int k = 0; k < 10000; ++k) {
+      char[] chars = new char[random.nextInt(12)];
+      for (int i = 0; i < chars.length; ++i) {
+        chars[i] = alphabet[random.nextInt(alphabet.length)];
+      }
+      String text = new String(chars);
+      assertArrayEquals(text, text.split("\\r?\\n|\\r"), StringUtil.splitByNewLine(text));
+    }
+  }
+
+  @Test
+  public void lineSpans() {
+    CharBuffer text = CharBuffer.wrap("a\r\nbc\r\rd");
+    LineSpans spans = StringUtil.lineSpans(text);
+    StringBuilder lines = new StringBuilder();
+    while (spans.next()) {
+      lines.append('[').append(spans.line()).append(']');
+    }
+    assertEquals("[a][bc][][d]", lines.toString());
+  }
+
+  @Test
+  public void escapeBackslash() {
+    for (String text : new String[] {"", "a", "\\", "a\\b\\\\c\\"}) {
+      assertEquals(text.replaceAll("\\\\", "\\\\\\\\"), StringUtil.escapeBackslash(text));
+    }
+  }
+
+  @Test
+  public void isBlank() {
+    assertTrue(StringUtil.isNullOrEmpty(null));
+    assertTrue(StringUtil.isNullOrEmpty(" \t\r\n"));
+    assertFalse(StringUtil.isNullOrEmpty(" a "));
+    assertTrue(StringUtil.isBlank(""));
+  }
+
+  @Test
+  public void logArray() {
+    double[] arr = {1, 2, 3, 4, 5};
+    assertEquals("[1.0, 2.0, ... , 5.0]", StringUtil.logArray(arr, 2, 1));
+    assertEquals("[1.0, 2.0, 3.0, 4.0, 5.0]", StringUtil.logArray(arr, 4, 3));
+    assertEquals("null", StringUtil.logArray(null, 1, 1));
+    assertEquals("[1.0, 2.0...]", StringUtil.logArray(arr, 2));
+
+    StringBuilderFormattable message = new DoubleArrayMessage(arr, 1, 1);
+    StringBuilder builder = new StringBuilder("x=");
+    message.formatTo(builder);
+    assertEquals("x=[1.0, ... , 5.0]", builder.toString());
+  }
+}